@@ -0,0 +1,73 @@
+package Engine;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks of the move generator on the standard test positions of Perft: one legal move
+ * generation, and a full perft to a fixed depth. The perft nodes are counted in an auxiliary
+ * counter, so JMH reports them as nodes per second next to the calls per second.
+ *
+ * Run with: mvn -Pjmh package and java -jar target/benchmarks.jar PerftBenchmark [-p depth=5]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param({"Start position", "Kiwipete", "Position 3", "Position 4", "Position 5", "Position 6"})
+    public String positionName;
+
+    @Param({"4"})
+    public int depth;
+
+    private Position position;
+    private Perft perft;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Nodes counted by perft, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear(){ nodes = 0; }
+    }
+
+    @Setup
+    public void setUp(){
+        for (String[] test : Perft.SUITE){
+            if (test[0].equals(positionName)){
+                position = Fen.parse(test[1]);
+            }
+        }
+        if (position == null){
+            throw new IllegalArgumentException("No test position " + positionName);
+        }
+        perft = new Perft(position);
+    }
+
+    /**
+     * @return - The number of legal moves, which JMH consumes
+     */
+    @Benchmark
+    public int generateLegal(){
+        return MoveGenerator.generateLegal(position, moves, 0);
+    }
+
+    /**
+     * @return - The number of leaf nodes, which JMH consumes
+     */
+    @Benchmark
+    public long perft(Nodes counter){
+        long nodes = perft.count(depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
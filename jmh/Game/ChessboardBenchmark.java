@@ -0,0 +1,105 @@
+package Game;
+
+import Engine.*;
+import Pieces.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the Chessboard API in a middlegame with every piece type on the board: the move
+ * generation the board runs once per position (which is also what isCheckmate costs after a move),
+ * the legal moves of each piece type read from those generated moves, and attacked squares.
+ *
+ * Run with: mvn -Pjmh package and java -jar target/benchmarks.jar ChessboardBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessboardBenchmark {
+
+    /**
+     * Opening moves played on the Chessboard to reach a middlegame with every piece type still on the board
+     */
+    private static final String[] OPENING = {"e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5", "c2c3", "g8f6",
+            "d2d3", "d7d6", "b1d2", "a7a6"};
+
+    private static final String[] TYPES = {"Rook", "Knight", "Bishop", "Queen", "King", "Pawn"};
+
+    private Chessboard theChessboard;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setUp(){
+        theChessboard = new Chessboard();
+        for (String move : OPENING){
+            play(theChessboard, move);
+        }
+    }
+
+    /**
+     * The pieces of one type of the player to move
+     */
+    @State(Scope.Thread)
+    public static class PieceType {
+        @Param({"Rook", "Knight", "Bishop", "Queen", "King", "Pawn"})
+        public String pieceType;
+
+        private final ArrayList<Piece> list = new ArrayList<>();
+
+        @Setup
+        public void setUp(ChessboardBenchmark benchmark){
+            int type = Arrays.asList(TYPES).indexOf(pieceType) + 1;
+            for (Piece thePiece : benchmark.theChessboard.getCurrentPlayerPieces(true)){
+                if (thePiece.getType() == type){
+                    list.add(thePiece);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - The number of legal moves of the player to move, generated on the board's Position
+     */
+    @Benchmark
+    public int generateLegal(){
+        return MoveGenerator.generateLegal(theChessboard.getPosition(), moves, 0);
+    }
+
+    /**
+     * @return - The number of legal moves of the pieces of the type, picked out of the moves the
+     *           board generated for the position, which JMH consumes
+     */
+    @Benchmark
+    public int getLegalMoves(PieceType pieces){
+        int total = 0;
+        for (Piece thePiece : pieces.list){
+            total += thePiece.getLegalMoves(moves, 0);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void getPiecesUnderAttack(Blackhole blackhole){
+        blackhole.consume(theChessboard.getPiecesUnderAttack());
+    }
+
+    /**
+     * Plays a move given in coordinate notation (such as "e2e4") the way the Game does after two clicks
+     */
+    private static void play(Chessboard theChessboard, String move){
+        Piece[][] board = theChessboard.getBoard();
+        Piece start = board['8' - move.charAt(1)][move.charAt(0) - 'a'];
+        Piece end = board['8' - move.charAt(3)][move.charAt(2) - 'a'];
+        int encoded = start.getMove(end);
+        if (encoded == Move.NONE){
+            throw new IllegalStateException("Illegal benchmark move " + move);
+        }
+        theChessboard.play(encoded);
+    }
+}
@@ -0,0 +1,251 @@
+package Engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Analyses every position of a FEN or EPD file without a window, on several threads.
+ *
+ * The file is read as a stream in chunks of lines which the threads take in turn, and the results
+ * are written in the order of the file as soon as the chunks before them are done, so the memory
+ * used doesn't grow with the size of the file. Every thread reuses one Position and Search, and its
+ * transposition table is cleared before every position so the results don't depend on which
+ * thread analysed what.
+ *
+ * Every line of output is the position, a tab and the result of the analysis:
+ * - perft: the number of leaf nodes at the depth, checked against a "D<depth> n" operation if
+ *   the line has one (as in the usual perft suites);
+ * - moves: the number of legal moves;
+ * - mate: checkmate, stalemate, mate in n moves for either side if the search finds one within
+ *   the depth, or "-";
+ * - search: the best move at the depth, its score and the nodes searched, checked against a
+ *   "bm" operation if the line has one.
+ *
+ * Usage: java Engine.BatchAnalysis perft|moves|mate|search file|- [depth] [threads] reads the
+ * file, or the standard input for "-", and writes to the standard output. It exits with status 1
+ * if any position is invalid or fails its check.
+ */
+public final class BatchAnalysis {
+
+    private static final int CHUNK_LINES = 256;
+    private static final int CHUNKS_PER_THREAD = 4;    // Chunks read ahead of the output for every thread
+    private static final int TABLE_MEGABYTES = 2;
+    private static final Pattern PERFT_COUNT = Pattern.compile(";\\s*D(\\d+)\\s+(\\d+)");
+    private static final Pattern BEST_MOVES = Pattern.compile("\\sbm\\s+([^;]+)");
+
+    /**
+     * The analyses
+     */
+    public enum Mode { PERFT, MOVES, MATE, SEARCH }
+
+    private final Mode mode;
+    private final int depth;
+    private final int threads;
+    private final AtomicLong failed = new AtomicLong();
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * Constructor
+     * @param mode The analysis of every position
+     * @param depth Depth of perft, of the mate search or of the search, in plies
+     * @param threads Number of threads analysing
+     */
+    public BatchAnalysis(Mode mode, int depth, int threads){
+        this.mode = mode;
+        this.depth = depth;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return - The number of positions which were invalid or failed their check so far
+     */
+    public long getFailed(){ return failed.get(); }
+
+    /**
+     * Analyses every line of "input" and writes the results to "output" in the same order.
+     * Empty lines and lines starting with '#' are skipped.
+     *
+     * @param input Lines of FEN or EPD
+     * @param output Receives one line for every position
+     * @return - The number of positions analysed
+     * @throws IOException If reading or writing fails
+     */
+    public long run(BufferedReader input, Writer output) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Batch analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        long positions = 0;
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            for (String line = input.readLine(); ; line = input.readLine()){
+                if (line != null && !line.isBlank() && !line.startsWith("#")){
+                    chunk.add(line.trim());
+                }
+                if (chunk.size() == CHUNK_LINES || (line == null && !chunk.isEmpty())){
+                    List<String> lines = chunk;
+                    pending.add(pool.submit(() -> analyse(lines)));
+                    positions += lines.size();
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                }
+                // Writes the finished chunks at the head, waiting for it once enough are read ahead
+                while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() >= threads * CHUNKS_PER_THREAD ||
+                        line == null)){
+                    output.write(get(pending.poll()));
+                }
+                if (line == null){
+                    break;
+                }
+            }
+            output.flush();
+        }finally {
+            pool.shutdownNow();
+        }
+        return positions;
+    }
+
+    private static String get(Future<String> chunk) throws IOException {
+        try {
+            return chunk.get();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }catch (ExecutionException e){
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return - The output lines of a chunk of input lines
+     */
+    private String analyse(List<String> lines){
+        Worker worker = workers.get();
+        StringBuilder results = new StringBuilder(lines.size() * 100);
+        for (String line : lines){
+            results.append(line).append('\t');
+            try {
+                Fen.parse(line, worker.position);
+                worker.analyse(line, results);
+            }catch (IllegalArgumentException e){
+                failed.incrementAndGet();
+                results.append("invalid: ").append(e.getMessage());
+            }
+            results.append('\n');
+        }
+        return results.toString();
+    }
+
+    /**
+     * What one thread reuses from position to position
+     */
+    private final class Worker {
+        private final Position position = new Position();
+        private final TranspositionTable table = new TranspositionTable(TABLE_MEGABYTES);
+        private final Search search = new Search(position, table, null, new PawnTable(PawnTable.DEFAULT_MEGABYTES));
+        private final Perft perft = new Perft(position);
+        private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+        /**
+         * Analyses "position", set up from "line", and appends the result
+         */
+        void analyse(String line, StringBuilder result){
+            switch (mode){
+                case PERFT -> {
+                    long nodes = perft.count(depth);
+                    result.append(nodes);
+                    Matcher expected = PERFT_COUNT.matcher(line);
+                    while (expected.find()){
+                        if (Integer.parseInt(expected.group(1)) == depth){
+                            boolean ok = Long.parseLong(expected.group(2)) == nodes;
+                            result.append(ok ? " ok" : " FAILED, expected " + expected.group(2));
+                            failed.addAndGet(ok ? 0 : 1);
+                        }
+                    }
+                }
+                case MOVES -> result.append(MoveGenerator.generateLegal(position, moves, 0));
+                case MATE -> {
+                    if (MoveGenerator.generateLegal(position, moves, 0) == 0){
+                        result.append(position.isInCheck(position.getSideToMove()) ? "checkmate" : "stalemate");
+                    }else{
+                        int score = search();
+                        result.append((Math.abs(score) < Search.MATE - Search.MAX_PLY) ? "-" :
+                                ((score > 0) ? "mate in " : "mated in ") + (Search.MATE - Math.abs(score) + 1) / 2);
+                    }
+                }
+                case SEARCH -> {
+                    int score = search();
+                    int move = search.getBestMove();
+                    String san = (move == Move.NONE) ? "none" : San.toString(position, move, moves);
+                    result.append(san).append(' ');
+                    result.append((Math.abs(score) >= Search.MATE - Search.MAX_PLY) ?
+                            "mate " + ((score > 0) ? "" : "-") + (Search.MATE - Math.abs(score) + 1) / 2 : "cp " + score);
+                    result.append(" nodes ").append(search.getNodes());
+                    Matcher best = BEST_MOVES.matcher(line);
+                    if (best.find()){
+                        boolean ok = List.of(best.group(1).trim().split("\\s+")).contains(san);
+                        result.append(ok ? " ok" : " FAILED, expected " + best.group(1).trim());
+                        failed.addAndGet(ok ? 0 : 1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Searches "position" to the depth with an empty table
+         * @return - The score for the side to move
+         */
+        private int search(){
+            table.clear();
+            search.search(depth, 0, 0);
+            return search.getScore();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Mode mode = null;
+        for (Mode m : Mode.values()){
+            mode = (args.length > 0 && m.name().equalsIgnoreCase(args[0])) ? m : mode;
+        }
+        if (mode == null || args.length < 2){
+            System.err.println("Usage: java Engine.BatchAnalysis perft|moves|mate|search file|- [depth] [threads]");
+            System.exit(2);
+        }
+        int depth = (args.length > 2) ? Integer.parseInt(args[2]) : (mode == Mode.PERFT) ? 3 : 4;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        BatchAnalysis analysis = new BatchAnalysis(mode, depth, threads);
+
+        long start = System.nanoTime();
+        long positions;
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try (BufferedReader input = args[1].equals("-") ?
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16) :
+                Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)){
+            positions = analysis.run(input, output);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%,d positions (%,d failed) on %d threads in %.2f s: %,.0f positions/s%n", positions,
+                analysis.getFailed(), threads, seconds, positions / seconds);
+        if (analysis.getFailed() > 0){
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package Engine;
+
+/**
+ * Bitboard constants and precomputed attack tables.
+ *
+ * A bitboard is a long with one bit per square. Squares are numbered the same way as the
+ * Chessboard's Piece[rank][file] grid: square = rank*8 + file, so square 0 is a8 and square 63 is h1.
+ */
+public final class Bitboards {
+
+    /**
+     * Masks of single files and ranks (rank 0 is the 8th rank, as on the Chessboard)
+     */
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_8 = 0xFFL;
+    public static final long RANK_6 = RANK_8 << 16;
+    public static final long RANK_3 = RANK_8 << 40;
+    public static final long RANK_1 = RANK_8 << 56;
+    public static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;  // a8 and h1 are light
+
+    /**
+     * Attack tables for the pieces which don't slide, indexed by square
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    public static final long[][] PAWN_ATTACKS = new long[2][64]; // [color][square], color 0 = white, 1 = black
+
+    /**
+     * Line tables for pairs of squares on the same rank, file or diagonal (0 for other pairs).
+     * BETWEEN[a][b] holds the squares strictly between a and b; LINE[a][b] the whole line through both.
+     */
+    public static final long[][] BETWEEN = new long[64][64];
+    public static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++){
+            int rank = rankOf(sq);
+            int file = fileOf(sq);
+            for (int r = -2; r <= 2; r++){
+                for (int f = -2; f <= 2; f++){
+                    if (Math.abs(r) + Math.abs(f) == 3){
+                        KNIGHT_ATTACKS[sq] |= bit(rank+r, file+f);
+                    }else if (Math.abs(r) <= 1 && Math.abs(f) <= 1 && (r != 0 || f != 0)){
+                        KING_ATTACKS[sq] |= bit(rank+r, file+f);
+                    }
+                }
+            }
+            // White pawns move towards rank 0, black pawns towards rank 7
+            PAWN_ATTACKS[0][sq] = bit(rank-1, file-1) | bit(rank-1, file+1);
+            PAWN_ATTACKS[1][sq] = bit(rank+1, file-1) | bit(rank+1, file+1);
+
+            for (int r = -1; r <= 1; r++){
+                for (int f = -1; f <= 1; f++){
+                    if (r == 0 && f == 0){
+                        continue;
+                    }
+                    long line = ray(sq, r, f, 0L) | ray(sq, -r, -f, 0L) | (1L << sq);
+                    long between = 0L;
+                    for (int step = 1; bit(rank+r*step, file+f*step) != 0; step++){
+                        int target = square(rank+r*step, file+f*step);
+                        BETWEEN[sq][target] = between;
+                        LINE[sq][target] = line;
+                        between |= 1L << target;
+                    }
+                }
+            }
+        }
+    }
+
+    private Bitboards(){}
+
+    /**
+     * @param rank Rank position on the Chessboard
+     * @param file File position on the Chessboard
+     * @return The square index of (rank, file)
+     */
+    public static int square(int rank, int file){ return rank*8 + file; }
+    public static int rankOf(int square){ return square >>> 3; }
+    public static int fileOf(int square){ return square & 7; }
+
+    /**
+     * @param rank Rank position on the Chessboard
+     * @param file File position on the Chessboard
+     * @return A bitboard with only (rank, file) set, or 0 if the location is outside the board
+     */
+    public static long bit(int rank, int file){
+        return (rank < 0 || rank > 7 || file < 0 || file > 7) ? 0L : 1L << square(rank, file);
+    }
+
+    /**
+     * Walks a ray from "square" in the direction (rankStep, fileStep) until it leaves the board
+     * or reaches an occupied square, which is included in the ray. Used to build the lookup tables.
+     *
+     * @param square Starting square (not included)
+     * @param rankStep Rank increment of each step
+     * @param fileStep File increment of each step
+     * @param occupied Bitboard of all the occupied squares
+     * @return A bitboard of the squares reached
+     */
+    public static long ray(int square, int rankStep, int fileStep, long occupied){
+        long attacks = 0L;
+        int rank = rankOf(square) + rankStep;
+        int file = fileOf(square) + fileStep;
+        while (rank >= 0 && rank < 8 && file >= 0 && file < 8){
+            long b = 1L << square(rank, file);
+            attacks |= b;
+            if ((occupied & b) != 0){
+                break;
+            }
+            rank += rankStep;
+            file += fileStep;
+        }
+        return attacks;
+    }
+}
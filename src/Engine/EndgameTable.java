@@ -0,0 +1,264 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Distance to mate of every position with one set of pieces, such as king and rook against king
+ * ("KRK"), read from a memory-mapped file.
+ *
+ * The index of a position is made of the side to move and the square of every piece: the white
+ * king, the black king, then the other white and black pieces in the order queen, rook, bishop,
+ * knight, pawn. Pieces of the same color and type take their squares in increasing order, so a
+ * position has exactly one index. Positions with castling rights or an en passant square aren't in
+ * the table.
+ *
+ * An entry is 0 for a draw, otherwise the number of plies to mate plus one: an odd number of plies
+ * means the side to move mates, an even number that it is mated. The file holds the distinct values
+ * of the table followed by every entry packed into as few bits as those values need, so an entry is
+ * read in constant time without unpacking anything.
+ */
+public final class EndgameTable {
+
+    public static final int MAX_MEN = 4;    // 5 pieces would need more than 2^31 entries
+    public static final int DRAW = 0;
+
+    private static final int MAGIC = 0x43485442;    // "CHTB"
+    private static final int HEADER_BYTES = 12;
+    private static final String LETTERS = "RNBQKP";  // Letter of every piece type
+    private static final int[] TYPE_ORDER = {Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT, Position.PAWN};
+
+    private final String name;
+    private final int[] colors;     // Color and type of the piece of every square in the index
+    private final int[] types;
+    private final int[] repeats;    // Number of earlier pieces of the same color and type
+    private final long material;
+    private final int size;
+
+    private ByteBuffer file;        // Contents of the table file, null until the entries are set
+    private int bits;               // Bits of every packed entry
+    private byte[] values;          // Value of every packed code
+
+    /**
+     * Constructor for a table without entries
+     * @param name Pieces of the table, such as "KQK" or "KRKN": the white king and pieces, then the black ones
+     * @throws IllegalArgumentException If "name" isn't a set of at most MAX_MEN pieces
+     */
+    public EndgameTable(String name){
+        int blackKing = name.indexOf('K', 1);
+        int men = name.length();
+        if (!name.startsWith("K") || blackKing < 0 || men > MAX_MEN || name.indexOf('K', blackKing + 1) >= 0){
+            throw new IllegalArgumentException("Not a table of at most " + MAX_MEN + " pieces: " + name);
+        }
+        colors = new int[men];
+        types = new int[men];
+        repeats = new int[men];
+        colors[1] = Position.BLACK;
+        types[0] = types[1] = Position.KING;
+        int slot = 2;
+        for (int color = 0; color < 2; color++){
+            String pieces = (color == Position.WHITE) ? name.substring(1, blackKing) : name.substring(blackKing + 1);
+            for (int type : TYPE_ORDER){
+                for (int i = 0; i < pieces.length(); i++){
+                    if (LETTERS.indexOf(pieces.charAt(i)) == type){
+                        colors[slot] = color;
+                        types[slot] = type;
+                        repeats[slot] = (colors[slot - 1] == color && types[slot - 1] == type) ? repeats[slot - 1] + 1 : 0;
+                        slot++;
+                    }
+                }
+            }
+        }
+        if (slot != men){
+            throw new IllegalArgumentException("Not a table of at most " + MAX_MEN + " pieces: " + name);
+        }
+
+        StringBuilder canonical = new StringBuilder();
+        long key = 0;
+        for (int color = 0; color < 2; color++){
+            canonical.append('K');
+            for (int i = 2; i < men; i++){
+                if (colors[i] == color){
+                    canonical.append(LETTERS.charAt(types[i]));
+                    key += 1L << 4 * (color * 6 + types[i]);
+                }
+            }
+        }
+        this.name = canonical.toString();
+        this.material = key;
+        this.size = 2 << 6 * men;
+    }
+
+    /**
+     * Accessor methods
+     */
+    public String getName(){ return name; }
+    public int getMen(){ return types.length; }
+    public int getSize(){ return size; }
+    public long getMaterial(){ return material; }
+    public int getColor(int piece){ return colors[piece]; }
+    public int getType(int piece){ return types[piece]; }
+
+    /**
+     * @param position A position
+     * @param flip True to count the white pieces as black and the black ones as white
+     * @return - The number of pieces of every color and type except kings, comparable with getMaterial()
+     */
+    public static long material(Position position, boolean flip){
+        long key = 0;
+        for (int color = 0; color < 2; color++){
+            for (int type = 0; type < 6; type++){
+                if (type != Position.KING){
+                    key += (long)Long.bitCount(position.getPieces(color, type)) << 4 * ((flip ? color ^ 1 : color) * 6 + type);
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @param position A position with the pieces of the table, or of the table with the colors swapped if "flip"
+     * @param flip True to look up the position with the board turned around and the colors swapped
+     * @return - The index of the position's entry
+     */
+    public int index(Position position, boolean flip){
+        int swap = flip ? 1 : 0;
+        int index = position.getSideToMove() ^ swap;
+        for (int i = 0; i < types.length; i++){
+            long pieces = position.getPieces(colors[i] ^ swap, types[i]);
+            if (flip){
+                pieces = Long.reverseBytes(pieces); // Mirrors the ranks
+            }
+            for (int j = 0; j < repeats[i]; j++){
+                pieces &= pieces - 1;
+            }
+            index = (index << 6) | Long.numberOfTrailingZeros(pieces);
+        }
+        return index;
+    }
+
+    /**
+     * Sets up the position of an index
+     *
+     * @param index Index of an entry
+     * @param position Position receiving the pieces and side to move
+     * @return - False if the index isn't a position: two pieces on a square, a pawn on the first or last
+     *           rank or pieces of one type out of order. Whether a king can be captured isn't checked.
+     */
+    public boolean setUp(int index, Position position){
+        position.clear();
+        int later = 64;  // Square of the next piece in the index
+        for (int i = types.length - 1; i >= 0; i--){
+            int square = index & 63;
+            index >>>= 6;
+            if (position.isOccupied(square) || (types[i] == Position.PAWN && (square < 8 || square >= 56)) ||
+                    (i + 1 < types.length && repeats[i + 1] > 0 && later <= square)){
+                return false;
+            }
+            position.addPiece(colors[i], types[i], square);
+            later = square;
+        }
+        position.setSideToMove(index);
+        return true;
+    }
+
+    /**
+     * @param index Index of an entry
+     * @return - The entry: DRAW, or the plies to mate plus one
+     */
+    public int get(int index){
+        if (bits == 0){
+            return values[0] & 0xFF;
+        }
+        long bit = (long)index * bits;
+        int window = file.getShort(HEADER_BYTES + values.length + (int)(bit >>> 3)) & 0xFFFF;
+        return values[(window >>> (16 - bits - (int)(bit & 7))) & ((1 << bits) - 1)] & 0xFF;
+    }
+
+    /**
+     * Packs the entries of the table, replacing any it had
+     * @param entries Every entry of the table, by index
+     */
+    void setEntries(byte[] entries){
+        int[] codes = new int[256];
+        boolean[] used = new boolean[256];
+        for (byte entry : entries){
+            used[entry & 0xFF] = true;
+        }
+        int count = 0;
+        for (int value = 0; value < 256; value++){
+            codes[value] = count;
+            count += used[value] ? 1 : 0;
+        }
+        values = new byte[count];
+        for (int value = 0; value < 256; value++){
+            if (used[value]){
+                values[codes[value]] = (byte)value;
+            }
+        }
+        bits = 32 - Integer.numberOfLeadingZeros(count - 1);
+
+        // A spare byte at the end lets the last entry be read as a short
+        byte[] packed = new byte[HEADER_BYTES + count + (int)(((long)entries.length * bits + 7) >>> 3) + 1];
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        buffer.putInt(MAGIC).putInt(bits).putInt(count).put(values);
+        int start = buffer.position();
+        for (int i = 0; i < entries.length && bits > 0; i++){
+            long bit = (long)i * bits;
+            int at = start + (int)(bit >>> 3);
+            int window = codes[entries[i] & 0xFF] << (16 - bits - (int)(bit & 7));
+            packed[at] |= (byte)(window >>> 8);
+            packed[at + 1] |= (byte)window;
+        }
+        file = buffer.clear();
+    }
+
+    /**
+     * Writes the table to a file
+     * @param path The file
+     * @throws IOException If the file can't be written
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer contents = file.duplicate().clear();
+            while (contents.hasRemaining()){
+                channel.write(contents);
+            }
+        }
+    }
+
+    /**
+     * Maps a table file, which stays mapped while the table is in use
+     *
+     * @param path The file, named after the pieces of the table such as "KRK.tb"
+     * @return - The table
+     * @throws IOException If the file can't be read or isn't the table its name says
+     */
+    public static EndgameTable load(Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        EndgameTable table;
+        try {
+            table = new EndgameTable(fileName.substring(0, fileName.indexOf('.') < 0 ? fileName.length() : fileName.indexOf('.')));
+        }catch (IllegalArgumentException e){
+            throw new IOException(path + " is not a table file", e);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int bits = (file.limit() >= HEADER_BYTES) ? file.getInt(4) : -1;
+            int count = (file.limit() >= HEADER_BYTES) ? file.getInt(8) : -1;
+            if (file.limit() < HEADER_BYTES || file.getInt(0) != MAGIC || bits < 0 || bits > 8 || count < 1 || count > 256 ||
+                    file.limit() != HEADER_BYTES + count + (int)(((long)table.size * bits + 7) >>> 3) + 1){
+                throw new IOException(path + " is not a table file");
+            }
+            table.values = new byte[count];
+            file.get(HEADER_BYTES, table.values);
+            table.bits = bits;
+            table.file = file;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,309 @@
+package Engine;
+
+/**
+ * Static evaluation of a Position, in centipawns: material, piece-square tables, pawn structure,
+ * mobility and king safety.
+ *
+ * Every term has a middlegame and an endgame value, packed into one int by score(), and the two
+ * are blended by the phase of the game: the weight of the knights, bishops, rooks and queens left,
+ * from MAX_PHASE at the start down to 0. The material and piece-square part is kept up to date by
+ * Position on every change of the board, so only the terms which depend on how the pieces stand
+ * together are computed here. The pawn structure only changes when a pawn moves or is taken, so
+ * a search looks it up in a PawnTable instead of working it out at every node.
+ */
+public final class Evaluation {
+
+    /**
+     * Piece values in centipawns, indexed by type
+     */
+    public static final int[] VALUES = {500, 320, 330, 900, 0, 100};
+    private static final int[] ENDGAME_VALUES = {540, 300, 320, 950, 0, 130};
+
+    /**
+     * Phase weight of every piece type, and of all the pieces of the starting position together
+     */
+    static final int[] PHASE = {2, 1, 1, 4, 0, 0};
+    public static final int MAX_PHASE = 24;
+
+    /**
+     * Material and square bonus of every piece code (color * 6 + type) on every square, packed by
+     * score() and counted against Black
+     */
+    static final int[][] PIECE_SCORES = new int[12][64];
+
+    /**
+     * Middlegame bonus of every piece type on every square, from White's side: index 0 is a8 and 63 is h1.
+     * Black's tables are the same mirrored vertically (square ^ 56).
+     */
+    private static final int[][] MIDGAME_BONUS = {
+            { // Rook
+                     0,  0,  0,  0,  0,  0,  0,  0,
+                     5, 10, 10, 10, 10, 10, 10,  5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                    -5,  0,  0,  0,  0,  0,  0, -5,
+                     0,  0,  0,  5,  5,  0,  0,  0},
+            { // Knight
+                   -50,-40,-30,-30,-30,-30,-40,-50,
+                   -40,-20,  0,  0,  0,  0,-20,-40,
+                   -30,  0, 10, 15, 15, 10,  0,-30,
+                   -30,  5, 15, 20, 20, 15,  5,-30,
+                   -30,  0, 15, 20, 20, 15,  0,-30,
+                   -30,  5, 10, 15, 15, 10,  5,-30,
+                   -40,-20,  0,  5,  5,  0,-20,-40,
+                   -50,-40,-30,-30,-30,-30,-40,-50},
+            { // Bishop
+                   -20,-10,-10,-10,-10,-10,-10,-20,
+                   -10,  0,  0,  0,  0,  0,  0,-10,
+                   -10,  0,  5, 10, 10,  5,  0,-10,
+                   -10,  5,  5, 10, 10,  5,  5,-10,
+                   -10,  0, 10, 10, 10, 10,  0,-10,
+                   -10, 10, 10, 10, 10, 10, 10,-10,
+                   -10,  5,  0,  0,  0,  0,  5,-10,
+                   -20,-10,-10,-10,-10,-10,-10,-20},
+            { // Queen
+                   -20,-10,-10, -5, -5,-10,-10,-20,
+                   -10,  0,  0,  0,  0,  0,  0,-10,
+                   -10,  0,  5,  5,  5,  5,  0,-10,
+                    -5,  0,  5,  5,  5,  5,  0, -5,
+                     0,  0,  5,  5,  5,  5,  0, -5,
+                   -10,  5,  5,  5,  5,  5,  0,-10,
+                   -10,  0,  5,  0,  0,  0,  0,-10,
+                   -20,-10,-10, -5, -5,-10,-10,-20},
+            { // King
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -30,-40,-40,-50,-50,-40,-40,-30,
+                   -20,-30,-30,-40,-40,-30,-30,-20,
+                   -10,-20,-20,-20,-20,-20,-20,-10,
+                    20, 20,  0,  0,  0,  0, 20, 20,
+                    20, 30, 10,  0,  0, 10, 30, 20},
+            { // Pawn
+                     0,  0,  0,  0,  0,  0,  0,  0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                     5,  5, 10, 25, 25, 10,  5,  5,
+                     0,  0,  0, 20, 20,  0,  0,  0,
+                     5, -5,-10,  0,  0,-10, -5,  5,
+                     5, 10, 10,-20,-20, 10, 10,  5,
+                     0,  0,  0,  0,  0,  0,  0,  0},
+    };
+
+    /**
+     * Endgame bonuses of the pieces which play differently once the queens are off: the king
+     * comes to the centre and pawns are worth more the closer they are to promoting
+     */
+    private static final int[] KING_ENDGAME_BONUS = {
+           -50,-40,-30,-20,-20,-30,-40,-50,
+           -30,-20,-10,  0,  0,-10,-20,-30,
+           -30,-10, 20, 30, 30, 20,-10,-30,
+           -30,-10, 30, 40, 40, 30,-10,-30,
+           -30,-10, 30, 40, 40, 30,-10,-30,
+           -30,-10, 20, 30, 30, 20,-10,-30,
+           -30,-30,  0,  0,  0,  0,-30,-30,
+           -50,-30,-30,-30,-30,-30,-30,-50};
+    private static final int[] PAWN_ENDGAME_BONUS = {
+             0,  0,  0,  0,  0,  0,  0,  0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            15, 15, 15, 15, 15, 15, 15, 15,
+             5,  5,  5,  5,  5,  5,  5,  5,
+             0,  0,  0,  0,  0,  0,  0,  0,
+             0,  0,  0,  0,  0,  0,  0,  0};
+
+    /**
+     * Pawn structure: penalties for every doubled, isolated or backward pawn and bonuses for passed
+     * pawns by how many ranks they have advanced
+     */
+    private static final int DOUBLED = score(-10, -20);
+    private static final int ISOLATED = score(-10, -15);
+    private static final int BACKWARD = score(-8, -10);
+    private static final int[] PASSED = {score(0, 0), score(5, 10), score(10, 15), score(15, 30),
+            score(25, 55), score(40, 90), score(60, 140), score(0, 0)};
+
+    /**
+     * Mobility bonus of every piece type per square it attacks which isn't taken by its own pieces
+     * or guarded by an enemy pawn
+     */
+    private static final int[] MOBILITY = {score(2, 4), score(4, 4), score(5, 5), score(1, 2), 0, 0};
+
+    /**
+     * King safety: every attack of an enemy piece on the squares around the king adds its weight,
+     * and the middlegame penalty grows with the square of the total
+     */
+    private static final int[] KING_ATTACK_WEIGHT = {3, 2, 2, 5, 0, 0};
+    private static final int MAX_KING_DANGER = 500;
+
+    /**
+     * Middlegame bonus of every pawn of the king's color on the three files around it, one or
+     * two ranks in front of it
+     */
+    private static final int SHIELD_NEAR = score(10, 0);
+    private static final int SHIELD_FAR = score(5, 0);
+
+    /**
+     * Squares in front of a pawn on its own and the neighbouring files, by color and square:
+     * a pawn is passed when no enemy pawn is on them
+     */
+    private static final long[][] PASSED_MASKS = new long[2][64];
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    /**
+     * Squares on the neighbouring files level with or behind a pawn, by color and square: a pawn
+     * with none of its own pawns on them can't be defended by one
+     */
+    private static final long[][] SUPPORT_MASKS = new long[2][64];
+
+    /**
+     * Shield squares one and two ranks in front of a king, by color and square
+     */
+    private static final long[][] SHIELD_NEAR_MASKS = new long[2][64];
+    private static final long[][] SHIELD_FAR_MASKS = new long[2][64];
+
+    static {
+        for (int type = Position.ROOK; type <= Position.PAWN; type++){
+            int[] endgame = (type == Position.KING) ? KING_ENDGAME_BONUS : (type == Position.PAWN) ? PAWN_ENDGAME_BONUS :
+                    MIDGAME_BONUS[type];
+            for (int square = 0; square < 64; square++){
+                int white = score(VALUES[type] + MIDGAME_BONUS[type][square], ENDGAME_VALUES[type] + endgame[square]);
+                int black = score(VALUES[type] + MIDGAME_BONUS[type][square ^ 56], ENDGAME_VALUES[type] + endgame[square ^ 56]);
+                PIECE_SCORES[Position.WHITE * 6 + type][square] = white;
+                PIECE_SCORES[Position.BLACK * 6 + type][square] = -black;
+            }
+        }
+        for (int file = 0; file < 8; file++){
+            ADJACENT_FILES[file] = ((file > 0) ? Bitboards.FILE_A << file - 1 : 0L) | ((file < 7) ? Bitboards.FILE_A << file + 1 : 0L);
+        }
+        for (int square = 0; square < 64; square++){
+            long files = ADJACENT_FILES[Bitboards.fileOf(square)] | Bitboards.FILE_A << Bitboards.fileOf(square);
+            int rank = Bitboards.rankOf(square);
+            PASSED_MASKS[Position.WHITE][square] = files & ((1L << rank * 8) - 1);
+            PASSED_MASKS[Position.BLACK][square] = (rank == 7) ? 0L : files & (-1L << (rank + 1) * 8);
+            SUPPORT_MASKS[Position.WHITE][square] = ADJACENT_FILES[Bitboards.fileOf(square)] & (-1L << rank * 8);
+            SUPPORT_MASKS[Position.BLACK][square] = ADJACENT_FILES[Bitboards.fileOf(square)] & ((rank == 7) ? -1L : (1L << (rank + 1) * 8) - 1);
+            SHIELD_NEAR_MASKS[Position.WHITE][square] = (rank >= 1) ? files & Bitboards.RANK_8 << (rank - 1) * 8 : 0L;
+            SHIELD_FAR_MASKS[Position.WHITE][square] = (rank >= 2) ? files & Bitboards.RANK_8 << (rank - 2) * 8 : 0L;
+            SHIELD_NEAR_MASKS[Position.BLACK][square] = (rank <= 6) ? files & Bitboards.RANK_8 << (rank + 1) * 8 : 0L;
+            SHIELD_FAR_MASKS[Position.BLACK][square] = (rank <= 5) ? files & Bitboards.RANK_8 << (rank + 2) * 8 : 0L;
+        }
+    }
+
+    private Evaluation(){}
+
+    /**
+     * Packs a middlegame and an endgame value into one int, so both are added up at once
+     */
+    static int score(int midgame, int endgame){ return (endgame << 16) + midgame; }
+    static int midgame(int score){ return (short)score; }
+    static int endgame(int score){ return (score + 0x8000) >> 16; }
+
+    /**
+     * @param position The position to evaluate
+     * @return - The score of the position for the side to move, in centipawns
+     */
+    public static int evaluate(Position position){
+        return evaluate(position, null);
+    }
+
+    /**
+     * @param position The position to evaluate
+     * @param pawnTable Cache of pawn structure scores, or null to work the pawn structure out
+     * @return - The score of the position for the side to move, in centipawns
+     */
+    public static int evaluate(Position position, PawnTable pawnTable){
+        int score = position.getPieceScore() + ((pawnTable != null) ? pawnTable.probe(position) : pawnStructure(position)) +
+                kingShield(position, Position.WHITE) - kingShield(position, Position.BLACK);
+        long whitePawnAttacks = pawnAttacks(position.getPieces(Position.WHITE, Position.PAWN), Position.WHITE);
+        long blackPawnAttacks = pawnAttacks(position.getPieces(Position.BLACK, Position.PAWN), Position.BLACK);
+        score += pieces(position, Position.WHITE, blackPawnAttacks) - pieces(position, Position.BLACK, whitePawnAttacks);
+
+        int phase = Math.min(position.getPhase(), MAX_PHASE);
+        int blended = (midgame(score) * phase + endgame(score) * (MAX_PHASE - phase)) / MAX_PHASE;
+        return (position.getSideToMove() == Position.WHITE) ? blended : -blended;
+    }
+
+    /**
+     * Scores the pawns by themselves, without the pieces or kings, so the result only depends on
+     * the pawn key of the position
+     *
+     * @param position The position
+     * @return - The doubled, isolated, backward and passed pawn terms of White minus those of Black, packed by score()
+     */
+    static int pawnStructure(Position position){
+        return pawns(position, Position.WHITE) - pawns(position, Position.BLACK);
+    }
+
+    /**
+     * @return - The doubled, isolated, backward and passed pawn terms of "color"
+     */
+    private static int pawns(Position position, int color){
+        long own = position.getPieces(color, Position.PAWN);
+        long enemy = position.getPieces(color ^ 1, Position.PAWN);
+        long enemyAttacks = pawnAttacks(enemy, color ^ 1);
+        int score = 0;
+        for (long pawns = own; pawns != 0; pawns &= pawns - 1){
+            int square = Long.numberOfTrailingZeros(pawns);
+            int file = Bitboards.fileOf(square);
+            if ((own & ADJACENT_FILES[file]) == 0){
+                score += ISOLATED;
+            }else if ((own & SUPPORT_MASKS[color][square]) == 0 &&
+                    (enemyAttacks & 1L << ((color == Position.WHITE) ? square - 8 : square + 8)) != 0){
+                // Can't be defended by a pawn and can't advance without being taken
+                score += BACKWARD;
+            }
+            if ((enemy & PASSED_MASKS[color][square]) == 0 && (own & PASSED_MASKS[color][square] & Bitboards.FILE_A << file) == 0){
+                score += PASSED[(color == Position.WHITE) ? 7 - Bitboards.rankOf(square) : Bitboards.rankOf(square)];
+            }
+        }
+        // Every pawn with another of its color in front of it on its file
+        long ahead = (color == Position.WHITE) ? own >>> 8 : own << 8;
+        ahead |= (color == Position.WHITE) ? ahead >>> 8 : ahead << 8;
+        ahead |= (color == Position.WHITE) ? ahead >>> 16 : ahead << 16;
+        ahead |= (color == Position.WHITE) ? ahead >>> 32 : ahead << 32;
+        return score + DOUBLED * Long.bitCount(own & ahead);
+    }
+
+    /**
+     * @return - The bonus of the king of "color" for its pawns in front of it
+     */
+    private static int kingShield(Position position, int color){
+        int king = position.kingSquare(color);
+        long pawns = position.getPieces(color, Position.PAWN);
+        return SHIELD_NEAR * Long.bitCount(pawns & SHIELD_NEAR_MASKS[color][king]) +
+                SHIELD_FAR * Long.bitCount(pawns & SHIELD_FAR_MASKS[color][king]);
+    }
+
+    /**
+     * @param position The position
+     * @param color Color of the pieces
+     * @param enemyPawnAttacks Squares guarded by the other color's pawns
+     * @return - The mobility of the pieces of "color" and the safety of the other color's king
+     */
+    private static int pieces(Position position, int color, long enemyPawnAttacks){
+        long available = ~position.getColor(color) & ~enemyPawnAttacks;
+        int enemyKing = position.kingSquare(color ^ 1);
+        long kingZone = Bitboards.KING_ATTACKS[enemyKing] | 1L << enemyKing;
+        int score = 0;
+        int danger = 0;
+        for (int type = Position.ROOK; type <= Position.QUEEN; type++){
+            for (long pieces = position.getPieces(color, type); pieces != 0; pieces &= pieces - 1){
+                long attacks = position.getAttacks(Long.numberOfTrailingZeros(pieces));
+                score += MOBILITY[type] * Long.bitCount(attacks & available);
+                danger += KING_ATTACK_WEIGHT[type] * Long.bitCount(attacks & kingZone);
+            }
+        }
+        return score + score(Math.min(danger * danger / 4, MAX_KING_DANGER), 0);
+    }
+
+    /**
+     * @return - The squares attacked by "pawns" of "color"
+     */
+    static long pawnAttacks(long pawns, int color){
+        return (color == Position.WHITE) ? (pawns >>> 7 & ~Bitboards.FILE_A) | (pawns >>> 9 & ~Bitboards.FILE_H) :
+                (pawns << 9 & ~Bitboards.FILE_A) | (pawns << 7 & ~Bitboards.FILE_H);
+    }
+}
@@ -0,0 +1,217 @@
+package Engine;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ *
+ * The parser reads the text one character at a time straight into a Position, so parsing into a
+ * reused Position allocates nothing. Anything after the en passant field other than the two move
+ * counters is ignored, which lets it read the positions of EPD lines as well. Positions the move
+ * generator can't play from are rejected: pawns on the first or last rank, an en passant square
+ * which no double pawn push can have left, or the side not to move in check. Castling rights whose king or rook is not on its starting square are dropped.
+ */
+public final class Fen {
+
+    /**
+     * FEN of the starting position
+     */
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECES = "RNBQKPrnbqkp"; // Letter of every piece code (color*6 + type)
+
+    private Fen(){}
+
+    /**
+     * @param fen A position in FEN. The halfmove clock and fullmove number may be left out.
+     * @return A new Position set up from "fen"
+     */
+    public static Position parse(String fen){
+        Position position = new Position();
+        parse(fen, position);
+        return position;
+    }
+
+    /**
+     * Sets up "position" from "fen", replacing whatever it held
+     *
+     * @param fen A position in FEN. The halfmove clock and fullmove number may be left out.
+     * @param position The position to overwrite
+     * @throws IllegalArgumentException If "fen" is not a valid position or the side not to move is in check
+     */
+    public static void parse(CharSequence fen, Position position){
+        position.clear();
+        int length = fen.length();
+        int i = skipSpaces(fen, 0);
+
+        // Piece placement, from a8 to h1
+        int rank = 0;
+        int file = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++){
+            char c = fen.charAt(i);
+            if (c == '/'){
+                if (file != 8){
+                    throw invalid(fen);
+                }
+                rank++;
+                file = 0;
+            }else if (c >= '1' && c <= '8'){
+                file += c - '0';
+            }else{
+                int code = PIECES.indexOf(c);
+                if (code < 0 || rank > 7 || file > 7){
+                    throw invalid(fen);
+                }
+                position.placePiece(code / 6, code % 6, Bitboards.square(rank, file));
+                file++;
+            }
+            if (file > 8){
+                throw invalid(fen);
+            }
+        }
+        if (rank != 7 || file != 8){
+            throw invalid(fen);
+        }
+        position.updateAllAttacks();
+
+        // Side to move
+        i = skipSpaces(fen, i);
+        if (i < length){
+            char c = fen.charAt(i++);
+            if (c != 'w' && c != 'b'){
+                throw invalid(fen);
+            }
+            position.setSideToMove(c == 'b' ? Position.BLACK : Position.WHITE);
+        }
+
+        // Castling rights
+        i = skipSpaces(fen, i);
+        int rights = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++){
+            rights |= switch (fen.charAt(i)) {
+                case 'K' -> Position.WHITE_KINGSIDE;
+                case 'Q' -> Position.WHITE_QUEENSIDE;
+                case 'k' -> Position.BLACK_KINGSIDE;
+                case 'q' -> Position.BLACK_QUEENSIDE;
+                case '-' -> 0;
+                default -> throw invalid(fen);
+            };
+        }
+        position.setCastlingRights(rights & position.possibleCastlingRights());
+
+        // En passant square
+        i = skipSpaces(fen, i);
+        if (i < length && fen.charAt(i) != '-'){
+            if (i + 1 >= length || fen.charAt(i) < 'a' || fen.charAt(i) > 'h' || fen.charAt(i+1) < '1' ||
+                    fen.charAt(i+1) > '8'){
+                throw invalid(fen);
+            }
+            // It must be behind a pawn which has just moved two squares
+            int square = Bitboards.square('8' - fen.charAt(i+1), fen.charAt(i) - 'a');
+            int us = position.getSideToMove();
+            if (!position.isPossibleEnPassant(square)){
+                throw invalid(fen);
+            }
+            // Kept only if a pawn can capture onto it, as Position.makeMove does, so the key is the same
+            if ((Bitboards.PAWN_ATTACKS[us ^ 1][square] & position.getPieces(us, Position.PAWN)) != 0){
+                position.setEnPassantSquare(square);
+            }
+            i += 2;
+        }else if (i < length){
+            i++;
+        }
+
+        // Halfmove clock and fullmove number, if they are there
+        i = skipSpaces(fen, i);
+        if (i < length && Character.isDigit(fen.charAt(i))){
+            int halfmoves = 0;
+            for (; i < length && Character.isDigit(fen.charAt(i)); i++){
+                halfmoves = halfmoves * 10 + fen.charAt(i) - '0';
+            }
+            position.setHalfmoveClock(halfmoves);
+            i = skipSpaces(fen, i);
+            if (i < length && Character.isDigit(fen.charAt(i))){
+                int fullmoves = 0;
+                for (; i < length && Character.isDigit(fen.charAt(i)); i++){
+                    fullmoves = fullmoves * 10 + fen.charAt(i) - '0';
+                }
+                position.setFullmoveNumber(Math.max(fullmoves, 1));
+            }
+        }
+
+        // Kings, pawns on the back ranks and the side which just moved in check
+        try {
+            position.validate();
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException("Invalid FEN: " + fen + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * @param position The position to write
+     * @return The position in FEN
+     */
+    public static String toString(Position position){
+        return append(position, new StringBuilder(90)).toString();
+    }
+
+    /**
+     * Writes "position" in FEN to the end of "builder"
+     *
+     * @param position The position to write
+     * @param builder Builder receiving the text, which can be reused between positions
+     * @return - "builder"
+     */
+    public static StringBuilder append(Position position, StringBuilder builder){
+        for (int rank = 0; rank < 8; rank++){
+            int empty = 0;
+            for (int file = 0; file < 8; file++){
+                int piece = position.pieceAt(Bitboards.square(rank, file));
+                if (piece == Position.NO_PIECE){
+                    empty++;
+                    continue;
+                }
+                if (empty > 0){
+                    builder.append((char)('0' + empty));
+                    empty = 0;
+                }
+                builder.append(PIECES.charAt(piece));
+            }
+            if (empty > 0){
+                builder.append((char)('0' + empty));
+            }
+            if (rank < 7){
+                builder.append('/');
+            }
+        }
+
+        builder.append(position.getSideToMove() == Position.WHITE ? " w " : " b ");
+        int rights = position.getCastlingRights();
+        if (rights == 0){
+            builder.append('-');
+        }else{
+            for (int i = 0; i < 4; i++){
+                if ((rights & (1 << i)) != 0){
+                    builder.append("KQkq".charAt(i));
+                }
+            }
+        }
+        builder.append(' ');
+        if (position.getEnPassantSquare() < 0){
+            builder.append('-');
+        }else{
+            int square = position.getEnPassantSquare();
+            builder.append((char)('a' + Bitboards.fileOf(square))).append((char)('8' - Bitboards.rankOf(square)));
+        }
+        return builder.append(' ').append(position.getHalfmoveClock()).append(' ').append(position.getFullmoveNumber());
+    }
+
+    private static int skipSpaces(CharSequence fen, int i){
+        while (i < fen.length() && Character.isWhitespace(fen.charAt(i))){
+            i++;
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence fen){
+        return new IllegalArgumentException("Invalid FEN: " + fen);
+    }
+}
@@ -0,0 +1,454 @@
+package Engine;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compact binary format for positions and games.
+ *
+ * A position takes 32 bytes: the occupancy bitboard, then one nibble per occupied square in
+ * square order holding the piece code (color*6 + type), then the side to move and castling rights,
+ * the en passant square, the halfmove clock and the fullmove number. A move takes the 2 bytes of
+ * its Move encoding.
+ *
+ * A game file starts with the magic number and version, followed by one record per game: the
+ * starting position, the result, the number of moves and the moves. A position set is a file of
+ * games without moves. Files are read sequentially through memory-mapped windows.
+ *
+ * Usage: java Engine.GameFile games.pgn games.bin converts a PGN file, writes the positions of its
+ * games to games.bin.positions and games.bin.fen, and compares how long each takes to load.
+ */
+public final class GameFile {
+
+    public static final int POSITION_BYTES = 32;
+    public static final int MOVE_BYTES = 2;
+
+    /**
+     * Results, as stored in a game record
+     */
+    public static final int UNKNOWN = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+
+    private static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"}; // PGN name of every result
+    private static final int MAGIC = 0x43484753;    // "CHGS"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 6;
+    private static final int RECORD_BYTES = POSITION_BYTES + 3;   // Position, result and move count
+    private static final int MAX_MOVES = 0xFFFF;
+    private static final int WARMUP_ROUNDS = 5;     // Untimed loads before the measurements of main
+    private static final int TIMED_ROUNDS = 5;
+
+    private GameFile(){}
+
+    /**
+     * Writes "position" in 32 bytes at the position of "buffer"
+     * @param position The position to write
+     * @param buffer Buffer with at least POSITION_BYTES remaining
+     */
+    public static void writePosition(Position position, ByteBuffer buffer){
+        long occupied = position.getOccupied();
+        if (Long.bitCount(occupied) > 32){
+            throw new IllegalArgumentException("More than 32 pieces: " + Fen.toString(position));
+        }
+        buffer.putLong(occupied);
+        long nibbles = 0L;      // First 16 pieces, the first in the highest nibble
+        long moreNibbles = 0L;  // Last 16 pieces
+        int index = 0;
+        while (occupied != 0){
+            long code = position.pieceAt(Long.numberOfTrailingZeros(occupied));
+            if (index < 16){
+                nibbles |= code << (60 - 4*index);
+            }else{
+                moreNibbles |= code << (60 - 4*(index - 16));
+            }
+            index++;
+            occupied &= occupied - 1;
+        }
+        buffer.putLong(nibbles);
+        buffer.putLong(moreNibbles);
+        buffer.put((byte)(position.getSideToMove() | (position.getCastlingRights() << 1)));
+        buffer.put((byte)(position.getEnPassantSquare() + 1));
+        buffer.putShort((short)Math.min(position.getHalfmoveClock(), 0xFFFF));
+        buffer.putShort((short)Math.min(position.getFullmoveNumber(), 0xFFFF));
+        buffer.putShort((short)0); // Reserved
+    }
+
+    /**
+     * Reads a position written by writePosition into "position", replacing whatever it held
+     * @param buffer Buffer with at least POSITION_BYTES remaining
+     * @param position The position to overwrite
+     * @throws IllegalArgumentException If the bytes are not a valid position, as Position.validate checks it
+     */
+    public static void readPosition(ByteBuffer buffer, Position position){
+        position.clear();
+        long occupied = buffer.getLong();
+        long nibbles = buffer.getLong();
+        long moreNibbles = buffer.getLong();
+        if (Long.bitCount(occupied) > 32){
+            throw new IllegalArgumentException("Corrupt position: more than 32 pieces");
+        }
+        int index = 0;
+        while (occupied != 0){
+            int code = (int)(((index < 16) ? nibbles >>> (60 - 4*index) : moreNibbles >>> (60 - 4*(index - 16))) & 15);
+            if (code >= 12){
+                throw new IllegalArgumentException("Corrupt position: piece code " + code);
+            }
+            position.placePiece(code / 6, code % 6, Long.numberOfTrailingZeros(occupied));
+            index++;
+            occupied &= occupied - 1;
+        }
+        position.updateAllAttacks();
+        int state = buffer.get();
+        int enPassant = buffer.get();
+        position.setSideToMove(state & 1);
+        position.setCastlingRights((state >>> 1) & Position.ALL_CASTLING);
+        if (enPassant < 0 || enPassant > 64){
+            throw new IllegalArgumentException("Corrupt position: en passant square " + (enPassant - 1));
+        }
+        position.setEnPassantSquare(enPassant - 1);
+        position.setHalfmoveClock(buffer.getShort() & 0xFFFF);
+        position.setFullmoveNumber(Math.max(buffer.getShort() & 0xFFFF, 1));
+        buffer.getShort();
+        try {
+            position.validate();
+        }catch (IllegalArgumentException e){
+            throw new IllegalArgumentException("Corrupt position: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     * @return - The result code, UNKNOWN for anything else
+     */
+    public static int result(String result){
+        for (int i = 0; i < RESULTS.length; i++){
+            if (RESULTS[i].equals(result)){
+                return i;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @param result A result code
+     * @return - The result as written in PGN
+     */
+    public static String resultName(int result){ return RESULTS[result]; }
+
+    /**
+     * Writes a game file through one reused buffer
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long games;
+
+        /**
+         * Constructor. Creates the file, or empties it if it exists.
+         * @param file The file to write
+         * @throws IOException If the file can't be written
+         */
+        public Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC).putShort(VERSION);
+        }
+
+        /**
+         * Adds a game
+         * @param start The starting position
+         * @param moves The moves of the game (see Move)
+         * @param count Number of moves
+         * @param result Result code
+         * @throws IOException If the file can't be written
+         */
+        public void writeGame(Position start, int[] moves, int count, int result) throws IOException {
+            if (count > MAX_MOVES){
+                throw new IllegalArgumentException("Game longer than " + MAX_MOVES + " moves");
+            }
+            reserve(RECORD_BYTES);
+            GameFile.writePosition(start, buffer);
+            buffer.put((byte)result).putShort((short)count);
+            for (int i = 0; i < count; i++){
+                reserve(MOVE_BYTES);
+                buffer.putShort((short)moves[i]);
+            }
+            games++;
+        }
+
+        /**
+         * Adds a position, as a game without moves
+         * @param position The position
+         * @throws IOException If the file can't be written
+         */
+        public void writePosition(Position position) throws IOException {
+            writeGame(position, null, 0, UNKNOWN);
+        }
+
+        /**
+         * @return - The number of games written
+         */
+        public long getGames(){ return games; }
+
+        private void reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes){
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a game file from start to end through memory-mapped windows
+     */
+    public static final class Reader implements Closeable {
+
+        private static final long WINDOW_BYTES = 1L << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;   // Offset of the window in the file
+        private int[] moves = new int[512];
+        private int moveCount;
+        private int result;
+
+        /**
+         * Constructor
+         * @param file The file to read
+         * @throws IOException If the file can't be read or isn't a game file
+         */
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+            map(0);
+            if (size < HEADER_BYTES || window.getInt() != MAGIC || window.getShort() != VERSION){
+                channel.close();
+                throw new IOException(file + " is not a game file");
+            }
+        }
+
+        /**
+         * Reads the next game. The moves are not checked, so they are only legal if the file was
+         * written from legal games.
+         * @param start Position overwritten with the starting position of the game
+         * @return - False at the end of the file
+         * @throws IOException If the file can't be read or is corrupt
+         */
+        public boolean next(Position start) throws IOException {
+            if (windowStart + window.position() == size){
+                return false;
+            }
+            ensure(RECORD_BYTES);
+            try {
+                readPosition(window, start);
+            }catch (IllegalArgumentException e){
+                throw new IOException(e.getMessage() + " at offset " + (windowStart + window.position()), e);
+            }
+            result = window.get() & 3;
+            moveCount = window.getShort() & 0xFFFF;
+            ensure(moveCount * MOVE_BYTES);
+            if (moveCount > moves.length){
+                moves = Arrays.copyOf(moves, Math.max(moveCount, moves.length * 2));
+            }
+            for (int i = 0; i < moveCount; i++){
+                moves[i] = window.getShort() & 0xFFFF;
+            }
+            return true;
+        }
+
+        /**
+         * Accessor methods for the game read by next(). The moves array is reused by the next game.
+         */
+        public int[] getMoves(){ return moves; }
+        public int getMoveCount(){ return moveCount; }
+        public int getResult(){ return result; }
+
+        /**
+         * Makes sure the next "bytes" bytes are in the window, moving the window if they aren't
+         */
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes){
+                long offset = windowStart + window.position();
+                if (size - offset < bytes){
+                    throw new IOException("Truncated game file at offset " + offset);
+                }
+                map(offset);
+            }
+        }
+
+        private void map(long offset) throws IOException {
+            windowStart = offset;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, WINDOW_BYTES));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Converts a PGN file to a game file, and every position of its games to a position set and
+     * FEN lines, then times loading each of them
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2){
+            System.err.println("Usage: java Engine.GameFile games.pgn games.bin");
+            System.exit(2);
+        }
+        Path pgn = Path.of(args[0]);
+        Path binary = Path.of(args[1]);
+
+        try (Writer writer = new Writer(binary); FileChannel channel = FileChannel.open(pgn, StandardOpenOption.READ)){
+            Pgn.Listener converter = new Pgn.Listener() {
+                private Position start;
+                private int[] moves = new int[512];
+                private int count;
+
+                @Override
+                public void startGame(Position position){
+                    start = new Position(position);
+                    count = 0;
+                }
+
+                @Override
+                public void move(Position position, int move){
+                    if (count == moves.length){
+                        moves = Arrays.copyOf(moves, count * 2);
+                    }
+                    moves[count++] = move;
+                }
+
+                @Override
+                public void endGame(String result){
+                    try {
+                        writer.writeGame(start, moves, count, result(result));
+                    }catch (IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+            new Pgn(channel, converter).read();
+        }
+
+        // Writes every position of the games as a position set and as FEN lines
+        Path positionSet = binary.resolveSibling(binary.getFileName() + ".positions");
+        Path fens = binary.resolveSibling(binary.getFileName() + ".fen");
+        try (Reader reader = new Reader(binary); Writer writer = new Writer(positionSet);
+                java.io.Writer text = Files.newBufferedWriter(fens)){
+            Position position = new Position();
+            while (reader.next(position)){
+                for (int i = 0; i <= reader.getMoveCount(); i++){
+                    writer.writePosition(position);
+                    text.write(Fen.toString(position));
+                    text.write('\n');
+                    if (i < reader.getMoveCount()){
+                        position.makeMove(reader.getMoves()[i]);
+                    }
+                }
+            }
+        }
+
+        // Games are loaded by playing their moves, position sets by reading every position in turn
+        Position position = new Position();
+        long pgnTime = report("PGN games", pgn, () -> {
+            long[] positions = new long[1];
+            try (FileChannel channel = FileChannel.open(pgn, StandardOpenOption.READ)){
+                new Pgn(channel, new Pgn.Listener() {
+                    @Override
+                    public void move(Position position, int move){ positions[0]++; }
+                }).read();
+            }
+            return positions[0];
+        });
+        long binaryTime = report("Binary games", binary, () -> {
+            long positions = 0;
+            try (Reader reader = new Reader(binary)){
+                while (reader.next(position)){
+                    for (int i = 0; i < reader.getMoveCount(); i++){
+                        position.makeMove(reader.getMoves()[i]);
+                    }
+                    positions += reader.getMoveCount();
+                }
+            }
+            return positions;
+        });
+        long fenTime = report("FEN lines", fens, () -> {
+            long positions = 0;
+            try (BufferedReader reader = Files.newBufferedReader(fens)){
+                for (String line = reader.readLine(); line != null; line = reader.readLine()){
+                    Fen.parse(line, position);
+                    positions++;
+                }
+            }
+            return positions;
+        });
+        long positionSetTime = report("Position set", positionSet, () -> {
+            long positions = 0;
+            try (Reader reader = new Reader(positionSet)){
+                while (reader.next(position)){
+                    positions++;
+                }
+            }
+            return positions;
+        });
+        System.out.printf("Games:     %.1fx smaller, %.1fx faster to load than PGN%n",
+                (double)Files.size(pgn) / Files.size(binary), (double)pgnTime / binaryTime);
+        System.out.printf("Positions: %.1fx smaller, %.1fx faster to load than FEN%n",
+                (double)Files.size(fens) / Files.size(positionSet), (double)fenTime / positionSetTime);
+    }
+
+    private interface Load {
+        /**
+         * @return - The number of positions loaded
+         */
+        long run() throws IOException;
+    }
+
+    /**
+     * Loads a file WARMUP_ROUNDS times so the JIT compiles the readers, then prints its size and
+     * the fastest of TIMED_ROUNDS timed loads
+     * @return - The time of the fastest load in nanoseconds
+     */
+    private static long report(String name, Path file, Load load) throws IOException {
+        long positions = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++){
+            positions = load.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < TIMED_ROUNDS; i++){
+            long start = System.nanoTime();
+            load.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-13s %,14d bytes %10.2f ms %,12d positions %8.1f ns/position%n", name, Files.size(file),
+                best / 1e6, positions, (double)best / Math.max(positions, 1));
+        return best;
+    }
+}
@@ -0,0 +1,149 @@
+package Engine;
+
+/**
+ * Table-driven attacks for the sliding pieces using magic bitboards.
+ *
+ * For every square the blockers which matter (the relevant occupancy mask) are multiplied by a
+ * "magic" number, which perfectly hashes every blocker arrangement into a small attack table.
+ * The magic numbers are found once, when the class is loaded, by a seeded random search, so a
+ * rook, bishop or queen lookup is afterwards one multiply, one shift and one array read.
+ */
+public final class Magics {
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static long seed = 0x9E3779B97F4A7C15L; // Fixed seed, so the tables are the same on every run
+
+    static {
+        for (int sq = 0; sq < 64; sq++){
+            ROOK_MASKS[sq] = relevantMask(sq, true);
+            BISHOP_MASKS[sq] = relevantMask(sq, false);
+            initSquare(sq, true, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE);
+            initSquare(sq, false, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE);
+        }
+    }
+
+    private Magics(){}
+
+    /**
+     * @param square Square the rook is on
+     * @param occupied Bitboard of all the occupied squares
+     * @return The squares a rook on "square" attacks, including the first piece in each direction
+     */
+    public static long rookAttacks(int square, long occupied){
+        return ROOK_TABLE[square][(int)(((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * @param square Square the bishop is on
+     * @param occupied Bitboard of all the occupied squares
+     * @return The squares a bishop on "square" attacks, including the first piece in each direction
+     */
+    public static long bishopAttacks(int square, long occupied){
+        return BISHOP_TABLE[square][(int)(((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * @param square Square the queen is on
+     * @param occupied Bitboard of all the occupied squares
+     * @return The squares a queen on "square" attacks
+     */
+    public static long queenAttacks(int square, long occupied){
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Walks the rays of a rook or bishop one square at a time. Only used to fill the tables.
+     */
+    private static long slowAttacks(int square, long occupied, boolean rook){
+        if (rook){
+            return Bitboards.ray(square, -1, 0, occupied) | Bitboards.ray(square, 1, 0, occupied) |
+                    Bitboards.ray(square, 0, -1, occupied) | Bitboards.ray(square, 0, 1, occupied);
+        }
+        return Bitboards.ray(square, -1, -1, occupied) | Bitboards.ray(square, -1, 1, occupied) |
+                Bitboards.ray(square, 1, -1, occupied) | Bitboards.ray(square, 1, 1, occupied);
+    }
+
+    /**
+     * The squares whose occupancy can change the attacks from "square". The last square of every
+     * ray is left out since a piece there never blocks anything further.
+     */
+    private static long relevantMask(int square, boolean rook){
+        long mask = 0L;
+        int[][] directions = rook ? new int[][]{{-1,0},{1,0},{0,-1},{0,1}} : new int[][]{{-1,-1},{-1,1},{1,-1},{1,1}};
+        for (int[] direction : directions){
+            int rank = Bitboards.rankOf(square) + direction[0];
+            int file = Bitboards.fileOf(square) + direction[1];
+            while (rank + direction[0] >= 0 && rank + direction[0] < 8 &&
+                    file + direction[1] >= 0 && file + direction[1] < 8){
+                mask |= Bitboards.bit(rank, file);
+                rank += direction[0];
+                file += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Finds a magic number for "square" which maps every subset of its mask to a slot holding
+     * the right attacks, and fills in the table for that square.
+     */
+    private static void initSquare(int square, boolean rook, long[] masks, long[] magics, int[] shifts, long[][] table){
+        long mask = masks[square];
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+
+        // Enumerates every subset of the mask (Carry-Rippler)
+        long subset = 0L;
+        for (int i = 0; i < size; i++){
+            occupancies[i] = subset;
+            attacks[i] = slowAttacks(square, subset, rook);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] entries = new long[size];
+        int[] epoch = new int[size];
+        for (int attempt = 1; ; attempt++){
+            long magic = nextRandom() & nextRandom() & nextRandom(); // Sparse numbers make good magics
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6){
+                continue;
+            }
+            boolean failed = false;
+            for (int i = 0; i < size && !failed; i++){
+                int index = (int)((occupancies[i] * magic) >>> (64 - bits));
+                if (epoch[index] != attempt){
+                    epoch[index] = attempt;
+                    entries[index] = attacks[i];
+                }else if (entries[index] != attacks[i]){
+                    failed = true;
+                }
+            }
+            if (!failed){
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                table[square] = entries;
+                return;
+            }
+        }
+    }
+
+    /**
+     * xorshift64* random number generator
+     */
+    private static long nextRandom(){
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -0,0 +1,66 @@
+package Engine;
+
+/**
+ * Moves encoded in 16 bits of an int: bits 0-5 are the starting square, bits 6-11 the final square
+ * and bits 12-15 the flags below. Promotion flags keep the piece type in their low two bits,
+ * which works because ROOK, KNIGHT, BISHOP and QUEEN are types 0 to 3.
+ */
+public final class Move {
+
+    /**
+     * Flags
+     */
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;           // PROMOTION | type
+    public static final int PROMOTION_CAPTURE = 12;  // PROMOTION_CAPTURE | type
+
+    /**
+     * Value which is never a legal move
+     */
+    public static final int NONE = 0;
+
+    private Move(){}
+
+    /**
+     * @param from Starting square
+     * @param to Final square
+     * @param flags One of the flags above
+     * @return The encoded move
+     */
+    public static int of(int from, int to, int flags){ return from | (to << 6) | (flags << 12); }
+
+    public static int from(int move){ return move & 63; }
+    public static int to(int move){ return (move >>> 6) & 63; }
+    public static int flags(int move){ return (move >>> 12) & 15; }
+    public static boolean isCapture(int move){ return (flags(move) & CAPTURE) != 0; }
+    public static boolean isPromotion(int move){ return (flags(move) & PROMOTION) != 0; }
+    public static boolean isCastle(int move){ return flags(move) == KING_CASTLE || flags(move) == QUEEN_CASTLE; }
+
+    /**
+     * @param move A promotion
+     * @return The type of the piece the pawn becomes
+     */
+    public static int promotionType(int move){ return flags(move) & 3; }
+
+    /**
+     * @param square Square index on the board
+     * @return The name of the square, such as "e4"
+     */
+    public static String squareName(int square){
+        return "" + (char)('a' + Bitboards.fileOf(square)) + (char)('8' - Bitboards.rankOf(square));
+    }
+
+    /**
+     * @param move The encoded move
+     * @return The move in coordinate notation, such as "e2e4" or "e7e8q"
+     */
+    public static String toString(int move){
+        String text = squareName(from(move)) + squareName(to(move));
+        return isPromotion(move) ? text + "rnbq".charAt(promotionType(move)) : text;
+    }
+}
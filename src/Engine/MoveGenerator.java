@@ -0,0 +1,214 @@
+package Engine;
+
+/**
+ * Legal move generation for a Position.
+ *
+ * The checking pieces and the pinned pieces are found once per position. Every non-king move is
+ * then limited to the squares which answer the check (capturing the checker or blocking its ray),
+ * and a pinned piece to the line through its king, so no move has to be tried to know it is legal.
+ * King moves are tested against the enemy attacks with the king taken off the board.
+ */
+public final class MoveGenerator {
+
+    /**
+     * More than the number of legal moves in any chess position
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final int[] PROMOTION_TYPES = {Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT};
+
+    private MoveGenerator(){}
+
+    /**
+     * Writes every legal move of the side to move into "moves", starting at index "start".
+     *
+     * @param position The position
+     * @param moves Array receiving the encoded moves, with room for MAX_MOVES after "start"
+     * @param start Index of the first move written
+     * @return The index after the last move written
+     */
+    public static int generateLegal(Position position, int[] moves, int start){
+        return generate(position, moves, start, true);
+    }
+
+    /**
+     * Writes the legal captures, en passant captures and queen promotions of the side to move into
+     * "moves", starting at index "start". Used by the quiescence search.
+     *
+     * @param position The position
+     * @param moves Array receiving the encoded moves, with room for MAX_MOVES after "start"
+     * @param start Index of the first move written
+     * @return The index after the last move written
+     */
+    public static int generateCaptures(Position position, int[] moves, int start){
+        return generate(position, moves, start, false);
+    }
+
+    /**
+     * Generates the legal moves, leaving out the quiet ones and underpromotions if "quiets" is false
+     */
+    private static int generate(Position position, int[] moves, int start, boolean quiets){
+        int count = start;
+        int us = position.getSideToMove();
+        int them = us ^ 1;
+        long own = position.getColor(us);
+        long enemy = position.getColor(them);
+        long occupied = own | enemy;
+        int king = position.kingSquare(us);
+        long checkers = position.checkers(us);
+        long pinned = position.pinned(us);
+        long allowed = quiets ? ~own : enemy;   // Squares the pieces may move to
+
+        // King moves, checked with the king off its square so it can't hide behind itself
+        long withoutKing = occupied ^ (1L << king);
+        long targets = Bitboards.KING_ATTACKS[king] & allowed;
+        while (targets != 0){
+            int to = Long.numberOfTrailingZeros(targets);
+            if ((position.attackersTo(to, withoutKing) & enemy) == 0){
+                moves[count++] = Move.of(king, to, ((enemy >>> to) & 1) != 0 ? Move.CAPTURE : Move.QUIET);
+            }
+            targets &= targets - 1;
+        }
+
+        // Only the king can move out of double check
+        if ((checkers & (checkers - 1)) != 0){
+            return count;
+        }
+
+        // Squares which capture or block the checking piece, or every square if not in check
+        long checkMask = (checkers == 0) ? ~0L : checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        if (checkers == 0 && quiets){
+            count = generateCastling(position, moves, count, us, occupied);
+        }
+
+        // Rooks, knights, bishops and queens
+        for (int type = Position.ROOK; type <= Position.QUEEN; type++){
+            long pieces = position.getPieces(us, type);
+            while (pieces != 0){
+                int from = Long.numberOfTrailingZeros(pieces);
+                targets = position.attacksFrom(us, type, from) & allowed & checkMask;
+                if ((pinned & (1L << from)) != 0){
+                    targets &= Bitboards.LINE[king][from];
+                }
+                while (targets != 0){
+                    int to = Long.numberOfTrailingZeros(targets);
+                    moves[count++] = Move.of(from, to, ((enemy >>> to) & 1) != 0 ? Move.CAPTURE : Move.QUIET);
+                    targets &= targets - 1;
+                }
+                pieces &= pieces - 1;
+            }
+        }
+
+        return generatePawnMoves(position, moves, count, us, occupied, enemy, king, checkMask, pinned, quiets);
+    }
+
+    /**
+     * Adds the pawn pushes, captures, promotions and en passant captures. Without "quiets", only
+     * the captures and the pushes which promote to a queen are added.
+     */
+    private static int generatePawnMoves(Position position, int[] moves, int count, int us, long occupied, long enemy,
+                                         int king, long checkMask, long pinned, boolean quiets){
+        long pawns = position.getPieces(us, Position.PAWN);
+        int up = (us == Position.WHITE) ? -8 : 8;
+        long lastRank = (us == Position.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long doublePushRank = (us == Position.WHITE) ? Bitboards.RANK_3 : Bitboards.RANK_6;
+
+        // Pushes one and two squares forward
+        long single = shift(pawns, up) & ~occupied;
+        long twice = quiets ? shift(single & doublePushRank, up) & ~occupied & checkMask : 0L;
+        single &= quiets ? checkMask : checkMask & lastRank;
+        int promotions = quiets ? PROMOTION_TYPES.length : 1;
+        while (single != 0){
+            int to = Long.numberOfTrailingZeros(single);
+            int from = to - up;
+            if ((pinned & (1L << from)) == 0 || (Bitboards.LINE[king][from] & (1L << to)) != 0){
+                count = addPawnMove(moves, count, from, to, false, lastRank, promotions);
+            }
+            single &= single - 1;
+        }
+        while (twice != 0){
+            int to = Long.numberOfTrailingZeros(twice);
+            int from = to - 2*up;
+            if ((pinned & (1L << from)) == 0 || (Bitboards.LINE[king][from] & (1L << to)) != 0){
+                moves[count++] = Move.of(from, to, Move.DOUBLE_PUSH);
+            }
+            twice &= twice - 1;
+        }
+
+        // Diagonal captures
+        long capturers = pawns;
+        while (capturers != 0){
+            int from = Long.numberOfTrailingZeros(capturers);
+            long targets = Bitboards.PAWN_ATTACKS[us][from] & enemy & checkMask;
+            if ((pinned & (1L << from)) != 0){
+                targets &= Bitboards.LINE[king][from];
+            }
+            while (targets != 0){
+                count = addPawnMove(moves, count, from, Long.numberOfTrailingZeros(targets), true, lastRank, promotions);
+                targets &= targets - 1;
+            }
+            capturers &= capturers - 1;
+        }
+
+        // En passant. The capture takes two pieces off one rank at once, so it is checked by looking
+        // at the king's attackers with the occupancy after the move instead of with the pin masks.
+        int enPassant = position.getEnPassantSquare();
+        if (enPassant >= 0){
+            int captured = enPassant - up;
+            long attackers = Bitboards.PAWN_ATTACKS[us ^ 1][enPassant] & pawns;
+            while (attackers != 0){
+                int from = Long.numberOfTrailingZeros(attackers);
+                long after = (occupied ^ (1L << from) ^ (1L << captured)) | (1L << enPassant);
+                if ((position.attackersTo(king, after) & enemy & ~(1L << captured)) == 0){
+                    moves[count++] = Move.of(from, enPassant, Move.EN_PASSANT);
+                }
+                attackers &= attackers - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a pawn move, or the first "promotions" promotions (queen first) if it reaches the last rank
+     */
+    private static int addPawnMove(int[] moves, int count, int from, int to, boolean capture, long lastRank,
+                                   int promotions){
+        if ((lastRank & (1L << to)) != 0){
+            for (int i = 0; i < promotions; i++){
+                moves[count++] = Move.of(from, to, (capture ? Move.PROMOTION_CAPTURE : Move.PROMOTION) | PROMOTION_TYPES[i]);
+            }
+        }else{
+            moves[count++] = Move.of(from, to, capture ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+
+    /**
+     * Adds the castling moves. The king must not be in check (checked by the caller), the squares
+     * between the king and rook must be empty and the squares the king crosses must not be attacked.
+     */
+    private static int generateCastling(Position position, int[] moves, int count, int us, long occupied){
+        int rights = position.getCastlingRights();
+        int king = (us == Position.WHITE) ? Bitboards.square(7, 4) : Bitboards.square(0, 4);
+        int kingside = (us == Position.WHITE) ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = (us == Position.WHITE) ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        int them = us ^ 1;
+
+        if ((rights & kingside) != 0 && (occupied & ((1L << (king+1)) | (1L << (king+2)))) == 0 &&
+                !position.isSquareAttacked(king+1, them) && !position.isSquareAttacked(king+2, them)){
+            moves[count++] = Move.of(king, king+2, Move.KING_CASTLE);
+        }
+        if ((rights & queenside) != 0 && (occupied & ((1L << (king-1)) | (1L << (king-2)) | (1L << (king-3)))) == 0 &&
+                !position.isSquareAttacked(king-1, them) && !position.isSquareAttacked(king-2, them)){
+            moves[count++] = Move.of(king, king-2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    /**
+     * Shifts a bitboard by a signed number of squares (negative is towards square 0)
+     */
+    private static long shift(long bitboard, int squares){
+        return (squares < 0) ? bitboard >>> -squares : bitboard << squares;
+    }
+}
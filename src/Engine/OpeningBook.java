@@ -0,0 +1,282 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opening book read from a memory-mapped file of Polyglot-style entries.
+ *
+ * Every entry takes 16 bytes: the Zobrist key of a position, a move (see Move), its weight and
+ * four unused bytes. The entries are sorted by key, compared as unsigned numbers, so the moves of
+ * a position are found with a binary search and read straight from the mapped file. Keys are this
+ * engine's Zobrist keys, so Polyglot books made by other programs can't be read.
+ *
+ * Usage: java Engine.OpeningBook build games.pgn|games.bin book.bin [plies] builds a book from the
+ * first plies of every game, and java Engine.OpeningBook probe book.bin [fen] prints the book moves
+ * of a position.
+ */
+public final class OpeningBook {
+
+    public static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer entries;
+    private final int count;
+
+    /**
+     * Constructor. Maps the whole file, which stays mapped while the book is in use.
+     * @param file The book file
+     * @throws IOException If the file can't be read or isn't a book
+     */
+    public OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE){
+                throw new IOException(file + " is not a book");
+            }
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            count = (int)(size / ENTRY_BYTES);
+        }
+    }
+
+    /**
+     * @return - The number of entries in the book
+     */
+    public int getEntries(){ return count; }
+
+    /**
+     * Copies the book moves of a position and their weights
+     *
+     * @param key Zobrist key of the position
+     * @param moves Array receiving the moves
+     * @param weights Array receiving the weight of each move
+     * @return - The number of moves written, at most the length of the arrays
+     */
+    public int lookup(long key, int[] moves, int[] weights){
+        int found = 0;
+        for (int i = firstEntry(key); i < count && entries.getLong(i * ENTRY_BYTES) == key && found < moves.length; i++){
+            moves[found] = move(i);
+            weights[found++] = weight(i);
+        }
+        return found;
+    }
+
+    /**
+     * Picks one of the book moves of "position" at random, each with a chance proportional to
+     * its weight. Moves which aren't legal in the position (from a key collision) are never picked.
+     *
+     * @param position The position
+     * @param moves Scratch array with room for MoveGenerator.MAX_MOVES
+     * @return - The chosen move, or Move.NONE if the position isn't in the book
+     */
+    public int probe(Position position, int[] moves){
+        long key = position.getKey();
+        int first = firstEntry(key);
+        if (first == count || entries.getLong(first * ENTRY_BYTES) != key){
+            return Move.NONE;
+        }
+        int legal = MoveGenerator.generateLegal(position, moves, 0);
+        long total = 0;
+        for (int i = first; i < count && entries.getLong(i * ENTRY_BYTES) == key; i++){
+            total += isIn(move(i), moves, legal) ? weight(i) : 0;
+        }
+        if (total == 0){
+            return Move.NONE;
+        }
+        long pick = ThreadLocalRandom.current().nextLong(total);
+        for (int i = first; ; i++){
+            if (isIn(move(i), moves, legal)){
+                pick -= weight(i);
+                if (pick < 0){
+                    return move(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - The index of the first entry whose key is at least "key" (unsigned), or the number of entries
+     */
+    private int firstEntry(long key){
+        int low = 0;
+        int high = count;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(middle * ENTRY_BYTES), key) < 0){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int move(int entry){ return entries.getShort(entry * ENTRY_BYTES + 8) & 0xFFFF; }
+    private int weight(int entry){ return entries.getShort(entry * ENTRY_BYTES + 10) & 0xFFFF; }
+
+    private static boolean isIn(int move, int[] moves, int count){
+        for (int i = 0; i < count; i++){
+            if (moves[i] == move){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a book from the first "plies" moves of every game in a PGN or game file. Each move
+     * scores 2 for a win of the side which played it, 1 for a draw or unknown result and 0 for a
+     * loss; moves which only lost are left out. The scores of a position are scaled down if any
+     * doesn't fit in a weight.
+     *
+     * @param games A PGN file (ending in .pgn) or a game file (see GameFile)
+     * @param book The book file to write
+     * @param plies Number of moves from the start of each game to add
+     * @return - The number of entries written
+     * @throws IOException If a file can't be read or written
+     */
+    public static int build(Path games, Path book, int plies) throws IOException {
+        List<long[]> played = new ArrayList<>();  // {key, move, score} of every book move played
+        int[] gameMoves = new int[plies];
+        long[] gameKeys = new long[plies];
+
+        if (games.toString().endsWith(".pgn")){
+            try (FileChannel channel = FileChannel.open(games, StandardOpenOption.READ)){
+                new Pgn(channel, new Pgn.Listener() {
+                    private int count;
+                    private int firstSide;
+
+                    @Override
+                    public void startGame(Position position){
+                        count = 0;
+                        firstSide = position.getSideToMove();
+                    }
+
+                    @Override
+                    public void move(Position position, int move){
+                        if (count < plies){
+                            gameKeys[count] = position.getKey();
+                            gameMoves[count++] = move;
+                        }
+                    }
+
+                    @Override
+                    public void endGame(String result){
+                        addGame(played, gameKeys, gameMoves, count, firstSide, GameFile.result(result));
+                    }
+                }).read();
+            }
+        }else{
+            Position position = new Position();
+            try (GameFile.Reader reader = new GameFile.Reader(games)){
+                while (reader.next(position)){
+                    int firstSide = position.getSideToMove();
+                    int count = Math.min(plies, reader.getMoveCount());
+                    for (int i = 0; i < count; i++){
+                        gameKeys[i] = position.getKey();
+                        gameMoves[i] = reader.getMoves()[i];
+                        position.makeMove(gameMoves[i]);
+                    }
+                    addGame(played, gameKeys, gameMoves, count, firstSide, reader.getResult());
+                }
+            }
+        }
+
+        // Merges the same move of the same position, keeping the entries sorted by unsigned key
+        played.sort(Comparator.<long[]>comparingLong(entry -> entry[0] ^ Long.MIN_VALUE).thenComparingLong(entry -> entry[1]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] entry : played){
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last[0] == entry[0] && last[1] == entry[1]){
+                last[2] += entry[2];
+            }else{
+                merged.add(entry);
+            }
+        }
+        merged.removeIf(entry -> entry[2] == 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel channel = FileChannel.open(book, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            int first = 0;
+            while (first < merged.size()){
+                int end = first;
+                long highest = 0;
+                while (end < merged.size() && merged.get(end)[0] == merged.get(first)[0]){
+                    highest = Math.max(highest, merged.get(end++)[2]);
+                }
+                for (int i = first; i < end; i++){
+                    long[] entry = merged.get(i);
+                    long weight = (highest > 0xFFFF) ? Math.max(1, entry[2] * 0xFFFF / highest) : entry[2];
+                    if (buffer.remaining() < ENTRY_BYTES){
+                        write(channel, buffer);
+                    }
+                    buffer.putLong(entry[0]).putShort((short)entry[1]).putShort((short)weight).putInt(0);
+                }
+                first = end;
+            }
+            write(channel, buffer);
+        }
+        return merged.size();
+    }
+
+    /**
+     * Adds the book moves of one game to "played", scored by the result for the side which played each
+     */
+    private static void addGame(List<long[]> played, long[] keys, int[] moves, int count, int firstSide, int result){
+        for (int i = 0; i < count; i++){
+            int side = firstSide ^ (i & 1);
+            int won = (side == Position.WHITE) ? GameFile.WHITE_WINS : GameFile.BLACK_WINS;
+            int lost = (side == Position.WHITE) ? GameFile.BLACK_WINS : GameFile.WHITE_WINS;
+            played.add(new long[]{keys[i], moves[i], (result == won) ? 2 : (result == lost) ? 0 : 1});
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("build")){
+            int plies = (args.length > 3) ? Integer.parseInt(args[3]) : 16;
+            long start = System.nanoTime();
+            int written = build(Path.of(args[1]), Path.of(args[2]), plies);
+            System.out.printf("%,d entries written in %.1f ms%n", written, (System.nanoTime() - start) / 1e6);
+        }else if (args.length >= 2 && args[0].equals("probe")){
+            OpeningBook book = new OpeningBook(Path.of(args[1]));
+            Position position = Fen.parse(args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length)) : Fen.START);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int[] weights = new int[MoveGenerator.MAX_MOVES];
+            int found = book.lookup(position.getKey(), moves, weights);
+            for (int i = 0; i < found; i++){
+                System.out.printf("%-8s %6d%n", San.toString(position, moves[i], new int[MoveGenerator.MAX_MOVES]), weights[i]);
+            }
+
+            // Times the lookup of a random book move
+            int iterations = 1_000_000;
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int i = 0; i < iterations; i++){
+                sink += book.probe(position, moves);
+            }
+            System.out.printf("%d book moves of %,d entries, probe %.0f ns%s%n", found, book.getEntries(),
+                    (double)(System.nanoTime() - start) / iterations, (sink == 0) ? " (not in book)" : "");
+        }else{
+            System.err.println("Usage: java Engine.OpeningBook build games.pgn|games.bin book.bin [plies]");
+            System.err.println("       java Engine.OpeningBook probe book.bin [fen]");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package Engine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP: several threads search the same root at once, each with its own copy of the position,
+ * and share what they find only through the transposition table. Helper threads fill the table
+ * with results the main thread then reuses, and every other helper starts one ply deeper so the
+ * threads don't all search the same depth in step. The main thread decides the move; the helpers
+ * are stopped when it finishes.
+ *
+ * Usage: java Engine.ParallelSearch [maxThreads] [seconds] prints the search speed for each
+ * thread count from 1 to maxThreads.
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+    private final Position[] positions;     // The copy of the root each thread searches
+    private final Search[] workers;         // One for each thread, with its own pawn table, kept from one search to the next
+    private final ExecutorService helpers;
+    private final int threads;
+
+    /**
+     * Constructor
+     * @param table Transposition table shared by all the threads
+     * @param threads Number of threads searching, including the caller's
+     */
+    public ParallelSearch(TranspositionTable table, int threads){
+        this(table, null, threads);
+    }
+
+    /**
+     * Constructor
+     * @param table Transposition table shared by all the threads
+     * @param tablebase Endgame tables shared by all the threads, or null for none
+     * @param threads Number of threads searching, including the caller's
+     */
+    public ParallelSearch(TranspositionTable table, Tablebase tablebase, int threads){
+        this(table, tablebase, threads, PawnTable.DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Constructor
+     * @param table Transposition table shared by all the threads
+     * @param tablebase Endgame tables shared by all the threads, or null for none
+     * @param threads Number of threads searching, including the caller's
+     * @param pawnTableMegabytes Size of the pawn structure cache of each thread
+     */
+    public ParallelSearch(TranspositionTable table, Tablebase tablebase, int threads, int pawnTableMegabytes){
+        this.table = table;
+        this.tablebase = tablebase;
+        this.threads = Math.max(1, threads);
+        this.positions = new Position[this.threads];
+        this.workers = new Search[this.threads];
+        for (int i = 0; i < this.threads; i++){
+            positions[i] = new Position();
+            workers[i] = new Search(positions[i], table, tablebase, new PawnTable(pawnTableMegabytes));
+        }
+        this.helpers = (this.threads > 1) ? Executors.newFixedThreadPool(this.threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "Search helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * @return - The number of threads searching
+     */
+    public int getThreads(){ return threads; }
+
+    /**
+     * Searches "position" on every thread until the main thread reaches one of the limits.
+     * The position itself isn't changed.
+     *
+     * @param position The position to search
+     * @param maxDepth Deepest iteration to search
+     * @param millis Time budget in milliseconds, or 0 for none
+     * @param maxNodes Node budget of the main thread, or 0 for none
+     * @return - The Search of the main thread, holding the best move and its score until the next search
+     */
+    public Search search(Position position, int maxDepth, long millis, long maxNodes){
+        for (int i = 0; i < threads; i++){
+            positions[i].copyFrom(position);
+            workers[i].clearStop();
+        }
+        table.newSearch();
+
+        Future<?>[] running = new Future<?>[threads - 1];
+        for (int i = 1; i < threads; i++){
+            Search helper = workers[i];
+            int firstDepth = 1 + (i & 1);
+            running[i - 1] = helpers.submit(() -> helper.iterate(firstDepth, maxDepth, 0, 0));
+        }
+        workers[0].iterate(1, maxDepth, millis, maxNodes);
+        for (int i = 1; i < threads; i++){
+            workers[i].stop();
+        }
+        for (Future<?> helper : running){
+            try {
+                helper.get();
+            }catch (Exception e){
+                throw new IllegalStateException("Search helper failed", e);
+            }
+        }
+        return workers[0];
+    }
+
+    /**
+     * Stops every thread of the running search. Can be called from another thread.
+     */
+    public void stop(){
+        for (Search worker : workers){
+            worker.stop();
+        }
+    }
+
+    /**
+     * @return - The number of nodes searched by all the threads in the last search
+     */
+    public long getNodes(){
+        long nodes = 0;
+        for (Search worker : workers){
+            nodes += worker.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Shuts down the helper threads. The object can't search afterwards.
+     */
+    public void close(){
+        if (helpers != null){
+            helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * Measures how the speed scales with the number of threads, on the standard test positions
+     */
+    public static void main(String[] args){
+        int maxThreads = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis = (args.length > 1) ? Long.parseLong(args[1]) * 1000 : 5000;
+        double singleSpeed = 0;
+
+        int threads = 1;
+        while (true){
+            TranspositionTable table = new TranspositionTable(256);
+            ParallelSearch search = new ParallelSearch(table, threads);
+            long nodes = 0;
+            long time = 0;
+            int depth = 0;
+            for (String[] test : Perft.SUITE){
+                long start = System.nanoTime();
+                depth += search.search(Fen.parse(test[1]), Search.MAX_PLY, millis / Perft.SUITE.length, 0).getDepth();
+                time += System.nanoTime() - start;
+                nodes += search.getNodes();
+                table.clear();
+            }
+            search.close();
+            double speed = nodes * 1e9 / time;
+            singleSpeed = (threads == 1) ? speed : singleSpeed;
+            System.out.printf("%3d threads: %,14.0f nodes/s  speedup %5.2f  average depth %.1f%n", threads, speed,
+                    speed / singleSpeed, (double)depth / Perft.SUITE.length);
+            if (threads >= maxThreads){
+                break;
+            }
+            threads = Math.min(threads * 2, maxThreads);
+        }
+    }
+}
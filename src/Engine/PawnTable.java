@@ -0,0 +1,61 @@
+package Engine;
+
+/**
+ * Fixed-size cache of pawn structure scores keyed by the pawn key of a position. The pawns change
+ * on few of the moves of a search, so most positions find their structure already scored.
+ *
+ * Each entry is one long: the upper half of the pawn key and the packed score (see Evaluation).
+ * The lower bits of the key pick the entry, and a new score always replaces the old one. A table
+ * belongs to one thread; each thread of a parallel search has its own.
+ */
+public final class PawnTable {
+
+    public static final int DEFAULT_MEGABYTES = 1;
+
+    private static final int ENTRY_BYTES = 8;
+
+    private final long[] entries;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    /**
+     * Constructor
+     * @param megabytes Memory used by the table, rounded down to a power of two
+     */
+    public PawnTable(int megabytes){
+        long size = Math.max((long)megabytes << 20, ENTRY_BYTES) / ENTRY_BYTES;
+        size = Long.highestOneBit(Math.min(size, 1L << 30));
+        entries = new long[(int)size];
+        mask = (int)size - 1;
+    }
+
+    /**
+     * @param position The position
+     * @return - The pawn structure score of the position as Evaluation.pawnStructure gives it, from the table
+     *           if it is there, otherwise worked out and stored
+     */
+    public int probe(Position position){
+        long key = position.getPawnKey();
+        int index = (int)key & mask;
+        long entry = entries[index];
+        probes++;
+        if ((entry >>> 32) == (key >>> 32)){
+            hits++;
+            return (int)entry;
+        }
+        int score = Evaluation.pawnStructure(position);
+        entries[index] = (key & 0xFFFFFFFF00000000L) | (score & 0xFFFFFFFFL);
+        return score;
+    }
+
+    /**
+     * @return - The memory used by the table in megabytes
+     */
+    public int getMegabytes(){ return (int)((long)entries.length * ENTRY_BYTES >> 20); }
+
+    /**
+     * @return - The share of probes which found their position in the table, from 0 to 1
+     */
+    public double getHitRate(){ return (probes == 0) ? 0 : (double)hits / probes; }
+}
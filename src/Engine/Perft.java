@@ -0,0 +1,112 @@
+package Engine;
+
+/**
+ * Perft: counts the leaf nodes of the legal move tree to a fixed depth. The counts for the
+ * standard test positions are known, so any difference points to a move generation bug.
+ *
+ * Usage: java Engine.Perft [maxDepth]
+ */
+public class Perft {
+
+    /**
+     * Standard test positions: name, FEN, then the node counts from depth 1 upwards
+     */
+    public static final String[][] SUITE = {
+            {"Start position", Fen.START,
+                    "20", "400", "8902", "197281", "4865609", "119060324"},
+            {"Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    "48", "2039", "97862", "4085603", "193690690"},
+            {"Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    "14", "191", "2812", "43238", "674624", "11030083"},
+            {"Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    "6", "264", "9467", "422333", "15833292"},
+            {"Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    "44", "1486", "62379", "2103487", "89941194"},
+            {"Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    "46", "2079", "89890", "3894594", "164075551"},
+    };
+
+    private static final int MAX_DEPTH = 64;
+
+    private final Position position;
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES]; // One move list per ply
+
+    /**
+     * Constructor
+     * @param position The position to count from. It is restored after every count.
+     */
+    public Perft(Position position){
+        this.position = position;
+    }
+
+    /**
+     * @param depth Number of plies to search
+     * @return The number of leaf nodes at "depth"
+     */
+    public long count(int depth){
+        return (depth <= 0) ? 1 : count(depth, 0);
+    }
+
+    private long count(int depth, int ply){
+        int[] list = moves[ply];
+        int total = MoveGenerator.generateLegal(position, list, 0);
+        if (depth == 1){
+            return total; // Bulk counting: the leaves don't need to be played
+        }
+        long nodes = 0;
+        for (int i = 0; i < total; i++){
+            position.makeMove(list[i]);
+            nodes += count(depth - 1, ply + 1);
+            position.unmakeMove(list[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Prints the node count below every root move, which helps find the move where two generators differ
+     * @param depth Number of plies to search
+     */
+    public void divide(int depth){
+        int[] list = moves[0];
+        int total = MoveGenerator.generateLegal(position, list, 0);
+        long nodes = 0;
+        for (int i = 0; i < total; i++){
+            position.makeMove(list[i]);
+            long below = (depth > 1) ? count(depth - 1, 1) : 1;
+            position.unmakeMove(list[i]);
+            System.out.println(Move.toString(list[i]) + ": " + below);
+            nodes += below;
+        }
+        System.out.println("Total: " + nodes);
+    }
+
+    /**
+     * Runs the suite up to the given depth and reports mismatches and nodes per second.
+     * Exits with status 1 if any count is wrong.
+     */
+    public static void main(String[] args){
+        int maxDepth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        boolean failed = false;
+        long totalNodes = 0;
+        long totalTime = 0;
+
+        for (String[] test : SUITE){
+            Perft perft = new Perft(Fen.parse(test[1]));
+            for (int depth = 1; depth <= Math.min(maxDepth, test.length - 2); depth++){
+                long expected = Long.parseLong(test[depth + 1]);
+                long start = System.nanoTime();
+                long nodes = perft.count(depth);
+                long time = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += time;
+                failed |= nodes != expected;
+                System.out.printf("%-15s depth %d: %,14d nodes %10.1f ms %,14.0f nodes/s %s%n", test[0], depth, nodes,
+                        time / 1e6, nodes * 1e9 / time, (nodes == expected) ? "" : "FAILED, expected " + expected);
+            }
+        }
+        System.out.printf("Total: %,d nodes, %,.0f nodes/s%n", totalNodes, totalNodes * 1e9 / totalTime);
+        if (failed){
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Streaming reader of games in Portable Game Notation.
+ *
+ * The input is read through a fixed buffer from a channel, so files of any size are read in
+ * constant memory. Every SAN move is resolved against the legal moves of a Position which the
+ * reader plays the game on, and handed to a Listener before it is played. Comments, variations
+ * and numeric annotations are skipped. A game with a move which can't be resolved is reported
+ * and the rest of its moves are skipped.
+ *
+ * readParallel splits a file at game boundaries, found by looking for the "[Event " tag which
+ * starts every game in the Seven Tag Roster, and reads the parts on several threads.
+ */
+public final class Pgn {
+
+    /**
+     * Receives the games as they are read. Every method has an empty default.
+     */
+    public interface Listener {
+        /**
+         * Called for every tag pair of a game, before its moves
+         */
+        default void tag(String name, String value){}
+
+        /**
+         * Called before the first move of a game
+         * @param position The starting position, from the FEN tag if there is one
+         */
+        default void startGame(Position position){}
+
+        /**
+         * Called for every move before it is played
+         * @param position The position the move is played in. It must not be changed.
+         * @param move The legal move (see Move)
+         */
+        default void move(Position position, int move){}
+
+        /**
+         * Called at the end of every game which was read without errors
+         * @param result "1-0", "0-1", "1/2-1/2" or "*"
+         */
+        default void endGame(String result){}
+
+        /**
+         * Called instead of endGame for a game with a move which can't be resolved or a bad FEN tag
+         * @param reason What was wrong
+         */
+        default void invalidGame(String reason){}
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", "*"};
+    private static final byte[] GAME_START = "\n[Event ".getBytes(StandardCharsets.US_ASCII);
+
+    private final ReadableByteChannel channel;
+    private final Listener listener;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long remaining;         // Bytes left to read from the channel
+    private int pushedBack = -2;    // Byte given back by the tokenizer, -2 if none
+
+    /**
+     * State of the game being read
+     */
+    private final Position position = new Position();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final StringBuilder token = new StringBuilder();
+    private byte[] bytes = new byte[256];   // Bytes of the tag being read
+    private String fen;                     // FEN tag of the game, null if none
+    private boolean inGame;                 // Whether a tag or move of the game has been read
+    private boolean started;                // Whether the position has been set up
+    private boolean skipping;               // Whether the game has been found invalid
+    private long games;
+
+    /**
+     * Constructor
+     * @param channel Channel the games are read from
+     * @param listener Receives the games
+     */
+    public Pgn(ReadableByteChannel channel, Listener listener){
+        this(channel, listener, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for reading a part of a channel
+     * @param channel Channel the games are read from
+     * @param listener Receives the games
+     * @param length Number of bytes to read from the channel
+     */
+    public Pgn(ReadableByteChannel channel, Listener listener, long length){
+        this.channel = channel;
+        this.listener = listener;
+        this.remaining = length;
+        buffer.limit(0);
+    }
+
+    /**
+     * Reads every game to the end of the input
+     * @return - The number of games read, including invalid ones
+     * @throws IOException If the channel can't be read
+     */
+    public long read() throws IOException {
+        while (true){
+            int c = skipWhitespace();
+            if (c < 0){
+                break;
+            }
+            switch (c) {
+                case '[' -> {
+                    if (started){
+                        endGame("*"); // The last game had no result
+                    }
+                    readTag();
+                }
+                case '{' -> skipPast('}');
+                case ';', '%' -> skipPast('\n');
+                case '(' -> skipVariation();
+                case '$' -> readToken(c);
+                default -> move(readToken(c));
+            }
+        }
+        if (inGame){
+            endGame("*");
+        }
+        return games;
+    }
+
+    /**
+     * Handles a movetext token: a move number, a result or a move
+     */
+    private void move(StringBuilder text){
+        String result = result(text);
+        if (result != null){
+            endGame(result);
+            return;
+        }
+
+        // Takes off the move number, which may be written against the move ("12.e4", "12...Nf6")
+        int start = 0;
+        if (!startsWith(text, "0-0")){
+            while (start < text.length() && Character.isDigit(text.charAt(start))){
+                start++;
+            }
+            while (start < text.length() && text.charAt(start) == '.'){
+                start++;
+            }
+        }
+        if (start == text.length()){
+            return;
+        }
+        text.delete(0, start);
+
+        if (!started){
+            startGame();
+        }
+        if (skipping){
+            return;
+        }
+        int move = San.parse(position, text, moves);
+        if (move == Move.NONE){
+            skipping = true;
+            listener.invalidGame("Illegal or ambiguous move " + text + " in " + Fen.toString(position));
+            return;
+        }
+        listener.move(position, move);
+        position.makeMove(move);
+    }
+
+    /**
+     * Sets up the position from the FEN tag, or the starting position
+     */
+    private void startGame(){
+        started = true;
+        inGame = true;
+        try {
+            Fen.parse(fen == null ? Fen.START : fen, position);
+        }catch (IllegalArgumentException e){
+            skipping = true;
+            listener.invalidGame(e.getMessage());
+            return;
+        }
+        listener.startGame(position);
+    }
+
+    private void endGame(String result){
+        if (!started){
+            startGame();
+        }
+        if (!skipping){
+            listener.endGame(result);
+        }
+        games++;
+        fen = null;
+        inGame = started = skipping = false;
+    }
+
+    /**
+     * Reads a tag pair such as [White "Carlsen, Magnus"], after its opening bracket
+     */
+    private void readTag() throws IOException {
+        inGame = true;
+        token.setLength(0);
+        int c = skipWhitespace();
+        while (c >= 0 && c != '"' && c != ']' && !Character.isWhitespace(c)){
+            token.append((char)c);
+            c = next();
+        }
+        String name = token.toString();
+        while (c >= 0 && c != '"' && c != ']'){
+            c = next();
+        }
+
+        int length = 0;
+        if (c == '"'){
+            for (c = next(); c >= 0 && c != '"'; c = next()){
+                if (c == '\\'){
+                    c = next();
+                }
+                if (length == bytes.length){
+                    bytes = Arrays.copyOf(bytes, length * 2);
+                }
+                bytes[length++] = (byte)c;
+            }
+            skipPast(']');
+        }
+        String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        if (name.equals("FEN")){
+            fen = value;
+        }
+        listener.tag(name, value);
+    }
+
+    /**
+     * @return "text" if it is a game result, otherwise null
+     */
+    private static String result(CharSequence text){
+        for (String result : RESULTS){
+            if (result.contentEquals(text)){
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(CharSequence text, String prefix){
+        if (text.length() < prefix.length()){
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++){
+            if (text.charAt(i) != prefix.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a token starting with "first", up to the next space or bracket
+     */
+    private StringBuilder readToken(int first) throws IOException {
+        token.setLength(0);
+        token.append((char)first);
+        int c = next();
+        while (c >= 0 && !Character.isWhitespace(c) && "{}()[];".indexOf(c) < 0){
+            token.append((char)c);
+            c = next();
+        }
+        pushedBack = c;
+        return token;
+    }
+
+    /**
+     * Skips a variation, which may hold comments and other variations, after its opening parenthesis
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0){
+            int c = next();
+            if (c < 0){
+                return;
+            }else if (c == '('){
+                depth++;
+            }else if (c == ')'){
+                depth--;
+            }else if (c == '{'){
+                skipPast('}');
+            }
+        }
+    }
+
+    private void skipPast(int end) throws IOException {
+        int c = next();
+        while (c >= 0 && c != end){
+            c = next();
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = next();
+        while (c >= 0 && Character.isWhitespace(c)){
+            c = next();
+        }
+        return c;
+    }
+
+    /**
+     * @return - The next byte of the input, or -1 at the end
+     */
+    private int next() throws IOException {
+        if (pushedBack != -2){
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        if (!buffer.hasRemaining()){
+            if (remaining <= 0){
+                return -1;
+            }
+            buffer.clear();
+            if (remaining < BUFFER_SIZE){
+                buffer.limit((int)remaining);
+            }
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read <= 0){
+                remaining = 0;
+                return -1;
+            }
+            remaining -= read;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads a PGN file on several threads. The file is split into one part per thread at the
+     * start of a game, and each part is read by its own Pgn.
+     *
+     * @param file The PGN file
+     * @param threads Number of threads reading
+     * @param listeners Creates the listener of each part; the listeners are called from different threads
+     * @return - The number of games read, including invalid ones
+     * @throws IOException If the file can't be read
+     */
+    public static long readParallel(Path file, int threads, Supplier<Listener> listeners) throws IOException {
+        long[] bounds = new long[threads + 1];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            bounds[threads] = size;
+            for (int i = 1; i < threads; i++){
+                bounds[i] = Math.max(bounds[i - 1], findGameStart(channel, size / threads * i));
+            }
+        }
+
+        ExecutorService readers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "PGN reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> parts = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++){
+                long start = bounds[i];
+                long length = bounds[i + 1] - start;
+                Listener listener = listeners.get();
+                parts.add(readers.submit(() -> {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+                        channel.position(start);
+                        return new Pgn(channel, listener, length).read();
+                    }
+                }));
+            }
+            long games = 0;
+            for (Future<Long> part : parts){
+                try {
+                    games += part.get();
+                }catch (Exception e){
+                    throw new IOException("Reading " + file + " failed", e.getCause() != null ? e.getCause() : e);
+                }
+            }
+            return games;
+        }finally {
+            readers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return - The offset of the first game which starts at or after "from", or the size of the file if there is none
+     */
+    private static long findGameStart(FileChannel channel, long from) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(BUFFER_SIZE);
+        long offset = Math.max(from - 1, 0); // Includes the newline before a game starting exactly at "from"
+        while (offset < channel.size()){
+            window.clear();
+            int read = channel.read(window, offset);
+            if (read <= 0){
+                break;
+            }
+            for (int i = 0; i + GAME_START.length <= read; i++){
+                int j = 0;
+                while (j < GAME_START.length && window.get(i + j) == GAME_START[j]){
+                    j++;
+                }
+                if (j == GAME_START.length){
+                    return offset + i + 1;
+                }
+            }
+            if (offset + read >= channel.size()){
+                break;
+            }
+            offset += read - GAME_START.length + 1;
+        }
+        return channel.size();
+    }
+}
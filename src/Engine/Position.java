@@ -0,0 +1,733 @@
+package Engine;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position.
+ *
+ * Every piece type of every color has its own bitboard, and each color has an occupancy mask,
+ * so the pieces take only fourteen longs. Colors and types follow the numbering used by the
+ * Pieces package: color = player - 1 and type = piece type - 1.
+ *
+ * Moves are played with makeMove and taken back with unmakeMove. Each makeMove pushes one long
+ * onto an undo stack holding everything the move destroys (captured piece, castling rights,
+ * en passant square and halfmove clock), so moves are exactly reversible without allocating.
+ *
+ * A 64-bit Zobrist key of the position is kept up to date by every change to the pieces and state,
+ * so the position can be identified in O(1) at any time.
+ *
+ * The squares each piece attacks are kept up to date the same way. A change to the pieces only
+ * recomputes the pieces on the changed squares and the sliding pieces whose rays reach them, so
+ * attack and check queries are reads instead of a scan of the enemy pieces.
+ */
+public class Position {
+
+    /**
+     * Colors
+     */
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    /**
+     * Piece types
+     */
+    public static final int ROOK = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int QUEEN = 3;
+    public static final int KING = 4;
+    public static final int PAWN = 5;
+
+    /**
+     * Code stored in the mailbox for an empty square. Other squares hold color*6 + type.
+     */
+    public static final int NO_PIECE = -1;
+
+    /**
+     * Castling rights, one bit each
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    /**
+     * Castling rights kept when a piece moves from or to each square. Moving the king or a rook
+     * off its starting square, or capturing a rook on it, removes the matching rights.
+     */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[Bitboards.square(7,4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(7,7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(7,0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Bitboards.square(0,4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[Bitboards.square(0,7)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Bitboards.square(0,0)] &= ~BLACK_QUEENSIDE;
+    }
+
+    private final long[][] pieces = new long[2][6]; // pieces[color][type]
+    private final long[] colors = new long[2];      // All the squares occupied by each color
+    private final int[] mailbox = new int[64];      // Piece code on every square, for O(1) lookups by square
+    private final long[] attacks = new long[64];    // Squares attacked by the piece on every square, 0 if empty
+
+    /**
+     * State which is not visible from the pieces alone
+     */
+    private int sideToMove = WHITE;
+    private int castlingRights = 0;
+    private int enPassantSquare = -1;   // Square a pawn can capture en passant onto, -1 if none
+    private int halfmoveClock = 0;      // Halfmoves since the last capture or pawn move
+    private int fullmoveNumber = 1;
+
+    /**
+     * Undo stack: one packed record per move played with makeMove
+     */
+    private long[] undoStack = new long[256];
+    private int ply = 0;
+
+    /**
+     * Keys of the earlier positions of the game, oldest first: one for every move played with
+     * makeMove or recorded with recordPosition, which unmakeMove takes off again
+     */
+    private long[] history = new long[256];
+    private int historyLength = 0;
+
+    private long key = 0L;  // Zobrist key of the empty board with White to move
+    private long pawnKey = 0L;  // Zobrist key of the pawns alone, for PawnTable
+
+    /**
+     * Kept up to date with the pieces for Evaluation
+     */
+    private int pieceScore = 0;     // Material and square bonuses of White minus Black, packed by Evaluation.score
+    private int phase = 0;          // Sum of the phase weights of the pieces on the board
+
+    /**
+     * Constructor for an empty position
+     */
+    public Position(){
+        Arrays.fill(mailbox, NO_PIECE);
+    }
+
+    /**
+     * Copy constructor. The copy starts with an empty undo stack, so a search can play moves on
+     * its own copy while the original is used elsewhere. It keeps the part of the history since
+     * the last capture or pawn move, which is all a repetition can reach.
+     * @param other The position to copy
+     */
+    public Position(Position other){
+        copyFrom(other);
+    }
+
+    /**
+     * Makes this position a copy of "other" as the copy constructor does, reusing its arrays so a
+     * Position kept for many searches can be set up again without allocating
+     * @param other The position to copy
+     */
+    public void copyFrom(Position other){
+        for (int color = 0; color < 2; color++){
+            System.arraycopy(other.pieces[color], 0, pieces[color], 0, 6);
+        }
+        System.arraycopy(other.colors, 0, colors, 0, 2);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        System.arraycopy(other.attacks, 0, attacks, 0, 64);
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        ply = 0;
+        historyLength = Math.min(other.halfmoveClock, other.historyLength);
+        if (history.length < historyLength + Search.MAX_PLY){ // Room for a search without growing
+            history = new long[Math.max(256, historyLength * 2 + Search.MAX_PLY)];
+        }
+        System.arraycopy(other.history, other.historyLength - historyLength, history, 0, historyLength);
+        key = other.key;
+        pawnKey = other.pawnKey;
+        pieceScore = other.pieceScore;
+        phase = other.phase;
+    }
+
+    /**
+     * Empties the board and resets the state and undo stack, so one Position can be reused for
+     * many positions without allocating
+     */
+    public void clear(){
+        for (int color = 0; color < 2; color++){
+            Arrays.fill(pieces[color], 0L);
+        }
+        colors[WHITE] = colors[BLACK] = 0L;
+        Arrays.fill(mailbox, NO_PIECE);
+        Arrays.fill(attacks, 0L);
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        ply = 0;
+        historyLength = 0;
+        key = 0L;
+        pawnKey = 0L;
+        pieceScore = 0;
+        phase = 0;
+    }
+
+    /**
+     * Accessor methods for the bitboards
+     */
+    public long getPieces(int color, int type){ return pieces[color][type]; }
+    public long getColor(int color){ return colors[color]; }
+    public long getOccupied(){ return colors[WHITE] | colors[BLACK]; }
+
+    /**
+     * Accessor methods for the rest of the state
+     */
+    public int getSideToMove(){ return sideToMove; }
+    public void setSideToMove(int sideToMove){
+        if (sideToMove != this.sideToMove){
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        this.sideToMove = sideToMove;
+    }
+    public int getCastlingRights(){ return castlingRights; }
+    public void setCastlingRights(int castlingRights){
+        key ^= Zobrist.CASTLING[this.castlingRights] ^ Zobrist.CASTLING[castlingRights];
+        this.castlingRights = castlingRights;
+    }
+    public int getEnPassantSquare(){ return enPassantSquare; }
+    public void setEnPassantSquare(int enPassantSquare){
+        key ^= enPassantKey(this.enPassantSquare) ^ enPassantKey(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+    public int getHalfmoveClock(){ return halfmoveClock; }
+    public void setHalfmoveClock(int halfmoveClock){ this.halfmoveClock = halfmoveClock; }
+    public int getFullmoveNumber(){ return fullmoveNumber; }
+    public void setFullmoveNumber(int fullmoveNumber){ this.fullmoveNumber = fullmoveNumber; }
+
+    /**
+     * @return The Zobrist key of the position
+     */
+    public long getKey(){ return key; }
+
+    /**
+     * @return The Zobrist key of the pawns of both colors, which changes only on pawn moves and captures of pawns
+     */
+    public long getPawnKey(){ return pawnKey; }
+
+    /**
+     * Computes the Zobrist key from scratch. Should always equal getKey().
+     * @return The Zobrist key of the position
+     */
+    public long computeKey(){
+        long k = (sideToMove == BLACK ? Zobrist.BLACK_TO_MOVE : 0L) ^ Zobrist.CASTLING[castlingRights] ^
+                enPassantKey(enPassantSquare);
+        for (int square = 0; square < 64; square++){
+            if (mailbox[square] != NO_PIECE){
+                k ^= Zobrist.PIECES[mailbox[square]][square];
+            }
+        }
+        return k;
+    }
+
+    /**
+     * @return The material and square bonuses of White minus Black, packed as Evaluation.score packs them
+     */
+    public int getPieceScore(){ return pieceScore; }
+
+    /**
+     * @return The phase weight of the pieces on the board, MAX_PHASE at the start (see Evaluation)
+     */
+    public int getPhase(){ return phase; }
+
+    private static long enPassantKey(int square){
+        return (square < 0) ? 0L : Zobrist.EN_PASSANT[Bitboards.fileOf(square)];
+    }
+
+    /**
+     * @return The number of moves on the undo stack
+     */
+    public int getPly(){ return ply; }
+
+    /**
+     * Adds the current position to the history used to find repetitions. makeMove does this
+     * itself; callers which change the pieces directly for a move call it before the change.
+     */
+    public void recordPosition(){
+        if (historyLength == history.length){
+            history = Arrays.copyOf(history, historyLength * 2);
+        }
+        history[historyLength++] = key;
+    }
+
+    /**
+     * Counts the earlier occurrences of the position with the same side to move, castling rights
+     * and en passant square. Only the positions since the last capture or pawn move are looked at,
+     * as none before it can repeat.
+     *
+     * @return The number of times the position occurred before: 2 or more is a threefold repetition
+     */
+    public int repetitions(){
+        int count = 0;
+        int reach = Math.min(halfmoveClock, historyLength);
+        for (int back = 4; back <= reach; back += 2){
+            if (history[historyLength - back] == key){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return True if fifty moves of each side were played without a capture or pawn move
+     */
+    public boolean isFiftyMoveRule(){ return halfmoveClock >= 100; }
+
+    /**
+     * Checks if neither side can ever mate: only kings, a single bishop or knight, or any number
+     * of bishops which are all on squares of the same color
+     * @return True if the material left can't mate
+     */
+    public boolean isInsufficientMaterial(){
+        long heavy = pieces[WHITE][PAWN] | pieces[BLACK][PAWN] | pieces[WHITE][ROOK] | pieces[BLACK][ROOK] |
+                pieces[WHITE][QUEEN] | pieces[BLACK][QUEEN];
+        if (heavy != 0){
+            return false;
+        }
+        long knights = pieces[WHITE][KNIGHT] | pieces[BLACK][KNIGHT];
+        long bishops = pieces[WHITE][BISHOP] | pieces[BLACK][BISHOP];
+        return Long.bitCount(knights | bishops) <= 1 ||
+                (knights == 0 && ((bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & ~Bitboards.LIGHT_SQUARES) == 0));
+    }
+
+    /**
+     * @return - The castling rights the pieces allow: those whose king and rook are still on their starting squares
+     */
+    public int possibleCastlingRights(){
+        int possible = 0;
+        for (int color = 0; color < 2; color++){
+            int rank = (color == WHITE) ? 7 : 0;
+            if ((pieces[color][KING] & 1L << Bitboards.square(rank, 4)) == 0){
+                continue;
+            }
+            if ((pieces[color][ROOK] & 1L << Bitboards.square(rank, 7)) != 0){
+                possible |= (color == WHITE) ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+            }
+            if ((pieces[color][ROOK] & 1L << Bitboards.square(rank, 0)) != 0){
+                possible |= (color == WHITE) ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+            }
+        }
+        return possible;
+    }
+
+    /**
+     * @param square Square index on the board
+     * @return - True if a double pawn push of the side not to move can have left "square" as the en passant
+     *           square: it is on the sixth rank of the side to move, it and the square the pawn came from
+     *           are empty and the pawn stands in front of it
+     */
+    public boolean isPossibleEnPassant(int square){
+        int them = sideToMove ^ 1;
+        int pushed = square + ((sideToMove == WHITE) ? 8 : -8);
+        int origin = square - ((sideToMove == WHITE) ? 8 : -8);
+        return square >= 0 && square < 64 && Bitboards.rankOf(square) == ((sideToMove == WHITE) ? 2 : 5) &&
+                !isOccupied(square) && !isOccupied(origin) && mailbox[pushed] == them*6 + PAWN;
+    }
+
+    /**
+     * Checks that the move generator can play from this position, as read from a file: one king of
+     * each color, no pawn on the first or last rank, castling rights only with the king and rook on
+     * their starting squares, an en passant square only behind a pawn which has just moved two
+     * squares and which a pawn can take, and the side which just moved not in check
+     * @throws IllegalArgumentException Naming the first thing wrong with the position
+     */
+    public void validate(){
+        if (Long.bitCount(pieces[WHITE][KING]) != 1 || Long.bitCount(pieces[BLACK][KING]) != 1){
+            throw new IllegalArgumentException("not one king of each color");
+        }else if (((pieces[WHITE][PAWN] | pieces[BLACK][PAWN]) & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0){
+            throw new IllegalArgumentException("pawn on the first or last rank");
+        }else if ((castlingRights & ~possibleCastlingRights()) != 0){
+            throw new IllegalArgumentException("castling rights without the king and rook on their squares");
+        }else if (enPassantSquare >= 0 && (!isPossibleEnPassant(enPassantSquare) ||
+                (Bitboards.PAWN_ATTACKS[sideToMove ^ 1][enPassantSquare] & pieces[sideToMove][PAWN]) == 0)){
+            throw new IllegalArgumentException("impossible en passant square");
+        }else if (isInCheck(sideToMove ^ 1)){
+            throw new IllegalArgumentException("the side not to move is in check");
+        }
+    }
+
+    /**
+     * @param square Square index on the board
+     * @return True if either color has a piece on "square"
+     */
+    public boolean isOccupied(int square){
+        return ((colors[WHITE] | colors[BLACK]) & (1L << square)) != 0;
+    }
+
+    /**
+     * @param square Square index on the board
+     * @return The code (color*6 + type) of the piece on "square", or NO_PIECE if it is empty
+     */
+    public int pieceAt(int square){ return mailbox[square]; }
+
+    /**
+     * @param square Square index on the board
+     * @return The type of the piece on "square"; only meaningful if the square is occupied
+     */
+    public int typeAt(int square){ return mailbox[square] % 6; }
+
+    /**
+     * @param square Square index on the board
+     * @return The color of the piece on "square"; only meaningful if the square is occupied
+     */
+    public int colorAt(int square){ return mailbox[square] / 6; }
+
+    /**
+     * Puts a piece on an empty square
+     * @param color Color of the piece
+     * @param type Type of the piece
+     * @param square Square index on the board
+     */
+    public void addPiece(int color, int type, int square){
+        put(color, type, square);
+        updateAttacks(1L << square);
+    }
+
+    /**
+     * Puts a piece on an empty square without updating the attacks, for setting up a whole
+     * position; updateAllAttacks is called once every piece is placed
+     */
+    void placePiece(int color, int type, int square){
+        put(color, type, square);
+    }
+
+    /**
+     * Works out the attacks of every piece, after placePiece
+     */
+    void updateAllAttacks(){
+        updateAttacks(getOccupied());
+    }
+
+    /**
+     * Takes a piece off its square
+     * @param color Color of the piece
+     * @param type Type of the piece
+     * @param square Square index on the board
+     */
+    public void removePiece(int color, int type, int square){
+        take(color, type, square);
+        updateAttacks(1L << square);
+    }
+
+    /**
+     * Moves a piece to an empty square
+     * @param color Color of the piece
+     * @param type Type of the piece
+     * @param from Square the piece is on
+     * @param to Square the piece is moving to
+     */
+    public void movePiece(int color, int type, int from, int to){
+        shift(color, type, from, to);
+        updateAttacks((1L << from) | (1L << to));
+    }
+
+    /**
+     * addPiece, removePiece and movePiece without the attack update, for moves which change
+     * several squares and update the attacks once
+     */
+    private void put(int color, int type, int square){
+        pieces[color][type] |= 1L << square;
+        colors[color] |= 1L << square;
+        mailbox[square] = color*6 + type;
+        key ^= Zobrist.PIECES[color*6 + type][square];
+        if (type == PAWN){
+            pawnKey ^= Zobrist.PIECES[color*6 + type][square];
+        }
+        pieceScore += Evaluation.PIECE_SCORES[color*6 + type][square];
+        phase += Evaluation.PHASE[type];
+    }
+
+    private void take(int color, int type, int square){
+        pieces[color][type] &= ~(1L << square);
+        colors[color] &= ~(1L << square);
+        mailbox[square] = NO_PIECE;
+        key ^= Zobrist.PIECES[color*6 + type][square];
+        if (type == PAWN){
+            pawnKey ^= Zobrist.PIECES[color*6 + type][square];
+        }
+        pieceScore -= Evaluation.PIECE_SCORES[color*6 + type][square];
+        phase -= Evaluation.PHASE[type];
+    }
+
+    private void shift(int color, int type, int from, int to){
+        long fromTo = (1L << from) | (1L << to);
+        pieces[color][type] ^= fromTo;
+        colors[color] ^= fromTo;
+        mailbox[to] = mailbox[from];
+        key ^= Zobrist.PIECES[color*6 + type][from] ^ Zobrist.PIECES[color*6 + type][to];
+        if (type == PAWN){
+            pawnKey ^= Zobrist.PIECES[color*6 + type][from] ^ Zobrist.PIECES[color*6 + type][to];
+        }
+        pieceScore += Evaluation.PIECE_SCORES[color*6 + type][to] - Evaluation.PIECE_SCORES[color*6 + type][from];
+        mailbox[from] = NO_PIECE;
+    }
+
+    /**
+     * Recomputes the attacks changed by adding or removing pieces on "changed". Only the pieces
+     * on those squares and the sliding pieces which reached one of them before the change can
+     * attack differently: a slider which reaches a changed square afterwards either is on one or
+     * was stopped by one before.
+     */
+    private void updateAttacks(long changed){
+        long sliders = (pieces[WHITE][ROOK] | pieces[WHITE][BISHOP] | pieces[WHITE][QUEEN] |
+                pieces[BLACK][ROOK] | pieces[BLACK][BISHOP] | pieces[BLACK][QUEEN]) & ~changed;
+        while (sliders != 0){
+            int square = Long.numberOfTrailingZeros(sliders);
+            if ((attacks[square] & changed) != 0){
+                attacks[square] = attacksFrom(mailbox[square] / 6, mailbox[square] % 6, square);
+            }
+            sliders &= sliders - 1;
+        }
+        while (changed != 0){
+            int square = Long.numberOfTrailingZeros(changed);
+            attacks[square] = (mailbox[square] == NO_PIECE) ? 0L : attacksFrom(mailbox[square] / 6, mailbox[square] % 6, square);
+            changed &= changed - 1;
+        }
+    }
+
+    /**
+     * @param square Square index on the board
+     * @return A bitboard of the squares attacked by the piece on "square", empty if there is none
+     */
+    public long getAttacks(int square){ return attacks[square]; }
+
+    /**
+     * Every square attacked by "color", whether or not a piece could legally move there, as the
+     * union of the attacks of its pieces. Nothing is cached, so like every query of the Position it
+     * writes nothing and any number of threads may call it while the position doesn't change.
+     *
+     * @param color Color of the attacking pieces
+     * @return A bitboard of the attacked squares
+     */
+    public long getAttacked(int color){
+        long union = 0L;
+        for (long own = colors[color]; own != 0; own &= own - 1){
+            union |= attacks[Long.numberOfTrailingZeros(own)];
+        }
+        return union;
+    }
+
+    /**
+     * Squares attacked by a piece, ignoring whose turn it is and whether the move would be legal
+     * @param color Color of the piece
+     * @param type Type of the piece
+     * @param square Square the piece is on
+     * @return A bitboard of every square the piece attacks
+     */
+    public long attacksFrom(int color, int type, int square){
+        return switch (type) {
+            case ROOK -> Magics.rookAttacks(square, getOccupied());
+            case KNIGHT -> Bitboards.KNIGHT_ATTACKS[square];
+            case BISHOP -> Magics.bishopAttacks(square, getOccupied());
+            case QUEEN -> Magics.queenAttacks(square, getOccupied());
+            case KING -> Bitboards.KING_ATTACKS[square];
+            case PAWN -> Bitboards.PAWN_ATTACKS[color][square];
+            default -> 0L;
+        };
+    }
+
+    /**
+     * @param color Color of the king
+     * @return The square of the king of "color"
+     */
+    public int kingSquare(int color){
+        return Long.numberOfTrailingZeros(pieces[color][KING]);
+    }
+
+    /**
+     * Checks if any piece of "byColor" attacks "square" with the current occupancy
+     * @param square Square index on the board
+     * @param byColor Color of the attacking pieces
+     * @return True if "square" is attacked by "byColor"
+     */
+    public boolean isSquareAttacked(int square, int byColor){
+        return (attackersTo(square, getOccupied()) & colors[byColor]) != 0;
+    }
+
+    /**
+     * @param square Square index on the board
+     * @param occupied Occupancy to use for the sliding pieces, which may differ from the real one
+     * @return A bitboard of every piece, of either color, which attacks "square"
+     */
+    public long attackersTo(int square, long occupied){
+        long bishops = pieces[WHITE][BISHOP] | pieces[BLACK][BISHOP] | pieces[WHITE][QUEEN] | pieces[BLACK][QUEEN];
+        long rooks = pieces[WHITE][ROOK] | pieces[BLACK][ROOK] | pieces[WHITE][QUEEN] | pieces[BLACK][QUEEN];
+        return (Bitboards.PAWN_ATTACKS[BLACK][square] & pieces[WHITE][PAWN]) |
+                (Bitboards.PAWN_ATTACKS[WHITE][square] & pieces[BLACK][PAWN]) |
+                (Bitboards.KNIGHT_ATTACKS[square] & (pieces[WHITE][KNIGHT] | pieces[BLACK][KNIGHT])) |
+                (Bitboards.KING_ATTACKS[square] & (pieces[WHITE][KING] | pieces[BLACK][KING])) |
+                (Magics.bishopAttacks(square, occupied) & bishops) |
+                (Magics.rookAttacks(square, occupied) & rooks);
+    }
+
+    /**
+     * @param color Color of the side to check
+     * @return The enemy pieces giving check to the king of "color"
+     */
+    public long checkers(int color){
+        return attackersTo(kingSquare(color), getOccupied()) & colors[color ^ 1];
+    }
+
+    /**
+     * Finds the pieces of "color" which are pinned to their king: the only piece between the king
+     * and an enemy rook, bishop or queen looking at it (an x-ray through the pinned piece).
+     *
+     * @param color Color of the side whose pinned pieces are wanted
+     * @return A bitboard of the pinned pieces
+     */
+    public long pinned(int color){
+        int king = kingSquare(color);
+        long[] enemy = pieces[color ^ 1];
+        long snipers = (Magics.rookAttacks(king, colors[color ^ 1]) & (enemy[ROOK] | enemy[QUEEN])) |
+                (Magics.bishopAttacks(king, colors[color ^ 1]) & (enemy[BISHOP] | enemy[QUEEN]));
+        long occupied = getOccupied();
+        long pinned = 0L;
+        while (snipers != 0){
+            long between = Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(snipers)] & occupied;
+            if (between != 0 && (between & (between - 1)) == 0){
+                pinned |= between & colors[color];
+            }
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+
+    /**
+     * @param color Color of the king
+     * @return True if the king of "color" is attacked
+     */
+    public boolean isInCheck(int color){
+        return isSquareAttacked(kingSquare(color), color ^ 1);
+    }
+
+    /**
+     * Plays "move" for the side to move. The move must be pseudo-legal in this position; it is
+     * not checked. Every call must be matched by an unmakeMove of the same move.
+     *
+     * @param move Encoded move (see Move)
+     */
+    public void makeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int us = sideToMove;
+        int them = us ^ 1;
+        int type = mailbox[from] % 6;
+        int captured = mailbox[to];
+
+        if (ply == undoStack.length){
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+        }
+        recordPosition();
+
+        // Takes off the captured piece
+        long changed = (1L << from) | (1L << to);
+        if (flags == Move.EN_PASSANT){
+            int capturedSquare = to + (us == WHITE ? 8 : -8);
+            captured = them*6 + PAWN;
+            take(them, PAWN, capturedSquare);
+            changed |= 1L << capturedSquare;
+        }else if (captured != NO_PIECE){
+            take(them, captured % 6, to);
+        }
+        undoStack[ply++] = (captured + 1) | ((long)castlingRights << 4) | ((long)(enPassantSquare + 1) << 8) |
+                ((long)halfmoveClock << 16);
+
+        // Moves the piece, changing its type if it promotes
+        if (Move.isPromotion(move)){
+            take(us, PAWN, from);
+            put(us, Move.promotionType(move), to);
+        }else{
+            shift(us, type, from, to);
+        }
+
+        // Moves the rook when castling
+        if (flags == Move.KING_CASTLE){
+            shift(us, ROOK, to+1, to-1);
+            changed |= (1L << (to+1)) | (1L << (to-1));
+        }else if (flags == Move.QUEEN_CASTLE){
+            shift(us, ROOK, to-2, to+1);
+            changed |= (1L << (to-2)) | (1L << (to+1));
+        }
+        updateAttacks(changed);
+
+        // The en passant square is only kept if an enemy pawn can capture onto it, so positions
+        // which only differ by an unusable en passant square have the same key
+        int newEnPassant = -1;
+        if (flags == Move.DOUBLE_PUSH && (Bitboards.PAWN_ATTACKS[us][(from + to) / 2] & pieces[them][PAWN]) != 0){
+            newEnPassant = (from + to) / 2;
+        }
+        key ^= enPassantKey(enPassantSquare) ^ enPassantKey(newEnPassant);
+        enPassantSquare = newEnPassant;
+        int newRights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        key ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[newRights] ^ Zobrist.BLACK_TO_MOVE;
+        castlingRights = newRights;
+        halfmoveClock = (type == PAWN || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+        if (us == BLACK){
+            fullmoveNumber++;
+        }
+        sideToMove = them;
+    }
+
+    /**
+     * Takes back "move", which must be the last move played with makeMove.
+     *
+     * @param move Encoded move (see Move)
+     */
+    public void unmakeMove(int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int them = sideToMove;
+        int us = them ^ 1;
+
+        long undo = undoStack[--ply];
+        int captured = (int)(undo & 15) - 1;
+        castlingRights = (int)(undo >>> 4) & 15;
+        enPassantSquare = (int)((undo >>> 8) & 127) - 1;
+        halfmoveClock = (int)(undo >>> 16);
+        if (us == BLACK){
+            fullmoveNumber--;
+        }
+        sideToMove = us;
+
+        // Moves the rook back when castling
+        long changed = (1L << from) | (1L << to);
+        if (flags == Move.KING_CASTLE){
+            shift(us, ROOK, to-1, to+1);
+            changed |= (1L << (to-1)) | (1L << (to+1));
+        }else if (flags == Move.QUEEN_CASTLE){
+            shift(us, ROOK, to+1, to-2);
+            changed |= (1L << (to+1)) | (1L << (to-2));
+        }
+
+        // Moves the piece back, turning a promoted piece back into a pawn
+        if (Move.isPromotion(move)){
+            take(us, Move.promotionType(move), to);
+            put(us, PAWN, from);
+        }else{
+            shift(us, mailbox[to] % 6, to, from);
+        }
+
+        // Puts the captured piece back
+        if (flags == Move.EN_PASSANT){
+            put(them, PAWN, to + (us == WHITE ? 8 : -8));
+            changed |= 1L << (to + (us == WHITE ? 8 : -8));
+        }else if (captured != NO_PIECE){
+            put(them, captured % 6, to);
+        }
+        updateAttacks(changed);
+        key = history[--historyLength];
+    }
+}
@@ -0,0 +1,163 @@
+package Engine;
+
+/**
+ * Standard Algebraic Notation, such as "Nbd7", "exd6", "O-O" or "e8=Q+".
+ *
+ * A SAN move only names the piece and the square it moves to, so it is resolved by matching it
+ * against the legal moves of the position. Check, mate and annotation marks are ignored when reading.
+ */
+public final class San {
+
+    private static final String PIECES = "RNBQK"; // Letter of every piece type except the pawn
+
+    private San(){}
+
+    /**
+     * Finds the legal move written as "san" in "position"
+     *
+     * @param position The position the move is played in
+     * @param san The move in SAN
+     * @param moves Scratch array with room for MoveGenerator.MAX_MOVES, so nothing is allocated
+     * @return - The encoded move, or Move.NONE if "san" is not exactly one legal move
+     */
+    public static int parse(Position position, CharSequence san, int[] moves){
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0){
+            end--;
+        }
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+
+        // Castling, also written with zeros
+        if (end >= 3 && (san.charAt(0) == 'O' || san.charAt(0) == '0')){
+            int flags = (end == 3) ? Move.KING_CASTLE : (end == 5) ? Move.QUEEN_CASTLE : -1;
+            for (int i = 0; i < count; i++){
+                if (Move.flags(moves[i]) == flags){
+                    return moves[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int i = 0;
+        int type = Position.PAWN;
+        if (end > 0 && PIECES.indexOf(san.charAt(0)) >= 0){
+            type = PIECES.indexOf(san.charAt(0));
+            i++;
+        }
+
+        // Promotion piece, written "e8=Q" or "e8Q"
+        int promotion = -1;
+        if (end > 0 && type == Position.PAWN && PIECES.indexOf(san.charAt(end - 1)) >= 0){
+            promotion = PIECES.indexOf(san.charAt(end - 1));
+            end -= (end > 1 && san.charAt(end - 2) == '=') ? 2 : 1;
+        }
+
+        // The destination is the last two characters; anything between the piece and the
+        // destination other than 'x' is the file and/or rank of the starting square
+        if (end - i < 2){
+            return Move.NONE;
+        }
+        int to = square(san.charAt(end - 2), san.charAt(end - 1));
+        if (to < 0){
+            return Move.NONE;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int j = i; j < end - 2; j++){
+            char c = san.charAt(j);
+            if (c >= 'a' && c <= 'h'){
+                fromFile = c - 'a';
+            }else if (c >= '1' && c <= '8'){
+                fromRank = '8' - c;
+            }else if (c != 'x' && c != ':' && c != '-'){
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        for (int j = 0; j < count; j++){
+            int move = moves[j];
+            int from = Move.from(move);
+            if (Move.to(move) != to || position.typeAt(from) != type ||
+                    (fromFile >= 0 && Bitboards.fileOf(from) != fromFile) ||
+                    (fromRank >= 0 && Bitboards.rankOf(from) != fromRank) ||
+                    (Move.isPromotion(move) ? Move.promotionType(move) != promotion : promotion >= 0)){
+                continue;
+            }
+            if (found != Move.NONE){
+                return Move.NONE; // Ambiguous
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Writes a legal move in SAN, with the file or rank of the starting square when another piece
+     * of the same type could move to the same square, and "+" or "#" if it gives check or mate
+     *
+     * @param position The position the move is played in. It is restored before returning.
+     * @param move A legal move (see Move)
+     * @param moves Scratch array with room for MoveGenerator.MAX_MOVES
+     * @return - The move in SAN
+     */
+    public static String toString(Position position, int move, int[] moves){
+        StringBuilder san = new StringBuilder(8);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = position.typeAt(from);
+
+        if (Move.isCastle(move)){
+            san.append(Move.flags(move) == Move.KING_CASTLE ? "O-O" : "O-O-O");
+        }else if (type == Position.PAWN){
+            if (Move.isCapture(move)){
+                san.append((char)('a' + Bitboards.fileOf(from))).append('x');
+            }
+            san.append(Move.squareName(to));
+            if (Move.isPromotion(move)){
+                san.append('=').append(PIECES.charAt(Move.promotionType(move)));
+            }
+        }else{
+            san.append(PIECES.charAt(type));
+            boolean sameFile = false;
+            boolean sameRank = false;
+            boolean ambiguous = false;
+            int count = MoveGenerator.generateLegal(position, moves, 0);
+            for (int i = 0; i < count; i++){
+                int other = Move.from(moves[i]);
+                if (Move.to(moves[i]) == to && other != from && position.typeAt(other) == type){
+                    ambiguous = true;
+                    sameFile |= Bitboards.fileOf(other) == Bitboards.fileOf(from);
+                    sameRank |= Bitboards.rankOf(other) == Bitboards.rankOf(from);
+                }
+            }
+            if (ambiguous && (!sameFile || sameRank)){
+                san.append((char)('a' + Bitboards.fileOf(from)));
+            }
+            if (ambiguous && sameFile){
+                san.append((char)('8' - Bitboards.rankOf(from)));
+            }
+            if (Move.isCapture(move)){
+                san.append('x');
+            }
+            san.append(Move.squareName(to));
+        }
+
+        position.makeMove(move);
+        if (position.isInCheck(position.getSideToMove())){
+            san.append(MoveGenerator.generateLegal(position, moves, 0) == 0 ? '#' : '+');
+        }
+        position.unmakeMove(move);
+        return san.toString();
+    }
+
+    /**
+     * @return The index of the square named by "file" and "rank", or -1 if it isn't a square
+     */
+    private static int square(char file, char rank){
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8'){
+            return -1;
+        }
+        return Bitboards.square('8' - rank, file - 'a');
+    }
+}
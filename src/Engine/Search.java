@@ -0,0 +1,444 @@
+package Engine;
+
+/**
+ * Finds the best move of a Position with a negamax alpha-beta search.
+ *
+ * The search deepens one ply at a time until a depth, time or node limit is reached, keeping the
+ * best move of the last completed depth. From depth 4 each iteration starts with a narrow window
+ * around the previous score, which is widened whenever the score falls outside it. Leaves are
+ * resolved by a quiescence search of captures so positions aren't scored in the middle of an exchange.
+ *
+ * Every ply has its own preallocated move and ordering score arrays, so the search allocates
+ * nothing once constructed. Moves are ordered by transposition table move, captures by
+ * most valuable victim and least valuable attacker, killer moves, then history.
+ *
+ * Positions with few enough pieces are looked up in the endgame tablebase, if there is one,
+ * instead of being searched. Repetitions of an earlier position of the game or search are scored
+ * as draws from their first recurrence, as are the fifty-move rule and insufficient material.
+ */
+public class Search {
+
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32001;
+    public static final int MATE = 32000;    // Score of being checkmated is -MATE + ply
+
+    private static final int ASPIRATION_WINDOW = 25;
+    private static final int TT_MOVE_ORDER = 1_000_000;
+    private static final int CAPTURE_ORDER = 100_000;
+    private static final int KILLER_ORDER = 90_000;
+    private static final int HISTORY_LIMIT = 50_000;
+
+    private final Position position;
+    private final TranspositionTable table;
+    private final Tablebase tablebase;
+    private final PawnTable pawnTable;
+
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];  // Move list of every ply
+    private final int[][] order = new int[MAX_PLY][MoveGenerator.MAX_MOVES];  // Ordering score of every move
+    private final int[][] killers = new int[MAX_PLY][2];   // Quiet moves which caused a cutoff at each ply
+    private final int[][] history = new int[64][64];       // [from][to] cutoff counts of quiet moves
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];  // Principal variation found below each ply
+    private final int[] pvLength = new int[MAX_PLY];
+
+    /**
+     * Limits and results of the current search
+     */
+    private volatile boolean stopped;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private final int[] bestLine = new int[MAX_PLY];
+    private int bestLineLength;
+
+    /**
+     * Constructor
+     * @param position The position to search. Moves are played and taken back on it during the search.
+     * @param table Transposition table, which may be shared with later searches
+     */
+    public Search(Position position, TranspositionTable table){
+        this(position, table, null);
+    }
+
+    /**
+     * Constructor
+     * @param position The position to search. Moves are played and taken back on it during the search.
+     * @param table Transposition table, which may be shared with later searches
+     * @param tablebase Endgame tables to look positions up in, or null for none
+     */
+    public Search(Position position, TranspositionTable table, Tablebase tablebase){
+        this(position, table, tablebase, new PawnTable(PawnTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Constructor
+     * @param position The position to search. Moves are played and taken back on it during the search.
+     * @param table Transposition table, which may be shared with later searches
+     * @param tablebase Endgame tables to look positions up in, or null for none
+     * @param pawnTable Pawn structure cache, which may be kept for later searches but not shared with another thread
+     */
+    public Search(Position position, TranspositionTable table, Tablebase tablebase, PawnTable pawnTable){
+        this.position = position;
+        this.table = table;
+        this.tablebase = tablebase;
+        this.pawnTable = pawnTable;
+    }
+
+    /**
+     * Searches the position until one of the limits is reached
+     *
+     * @param maxDepth Deepest iteration to search
+     * @param millis Time budget in milliseconds, or 0 for none
+     * @param maxNodes Node budget, or 0 for none
+     * @return - The best move found, or Move.NONE if there are no legal moves
+     */
+    public int search(int maxDepth, long millis, long maxNodes){
+        table.newSearch();
+        stopped = false;
+        return iterate(1, maxDepth, millis, maxNodes);
+    }
+
+    /**
+     * Clears the stop of the last search. A parallel search calls this for every thread before
+     * starting any of them, so a stop() which arrives before a helper starts isn't lost.
+     */
+    void clearStop(){ stopped = false; }
+
+    /**
+     * Runs the iterative deepening loop from "firstDepth". Helper threads of a parallel search
+     * call this directly, after clearStop, so only the main thread starts a new table generation.
+     */
+    int iterate(int firstDepth, int maxDepth, long millis, long maxNodes){
+        long start = System.nanoTime();
+        deadline = (millis > 0) ? start + millis * 1_000_000L : Long.MAX_VALUE;
+        nodeLimit = (maxNodes > 0) ? maxNodes : Long.MAX_VALUE;
+        nodes = 0;
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        bestLineLength = 0;
+        for (int[] plyKillers : killers){
+            plyKillers[0] = plyKillers[1] = Move.NONE;
+        }
+        for (int[] row : history){
+            java.util.Arrays.fill(row, 0);
+        }
+
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++){
+            int score;
+            if (depth >= 4){
+                int delta = ASPIRATION_WINDOW;
+                int alpha = Math.max(bestScore - delta, -INFINITY);
+                int beta = Math.min(bestScore + delta, INFINITY);
+                while (true){
+                    score = negamax(depth, 0, alpha, beta);
+                    if (stopped){
+                        break;
+                    }else if (score <= alpha){
+                        alpha = Math.max(score - delta, -INFINITY);
+                    }else if (score >= beta){
+                        beta = Math.min(score + delta, INFINITY);
+                    }else{
+                        break;
+                    }
+                    delta *= 2;
+                }
+            }else{
+                score = negamax(depth, 0, -INFINITY, INFINITY);
+            }
+            if (stopped){
+                break; // The unfinished iteration can't be trusted, keep the last completed one
+            }
+
+            bestScore = score;
+            completedDepth = depth;
+            bestLineLength = pvLength[0];
+            System.arraycopy(pv[0], 0, bestLine, 0, bestLineLength);
+            bestMove = (bestLineLength > 0) ? bestLine[0] : Move.NONE;
+
+            // Stops early on a forced mate or if the next iteration couldn't finish in time
+            if (bestMove == Move.NONE || Math.abs(score) >= MATE - depth ||
+                    (millis > 0 && System.nanoTime() - start > millis * 500_000L)){
+                break;
+            }
+        }
+        if (bestMove == Move.NONE && MoveGenerator.generateLegal(position, moves[0], 0) > 0){
+            bestMove = moves[0][0]; // Stopped before the first iteration finished
+        }
+        return bestMove;
+    }
+
+    /**
+     * Stops the search as soon as possible. Can be called from another thread.
+     */
+    public void stop(){ stopped = true; }
+
+    /**
+     * Accessor methods for the results of the last search
+     */
+    public int getBestMove(){ return bestMove; }
+    public int getScore(){ return bestScore; }
+    public int getDepth(){ return completedDepth; }
+    public long getNodes(){ return nodes; }
+
+    /**
+     * @return - The expected line of play from the last completed iteration, in coordinate notation
+     */
+    public String getPrincipalVariation(){
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < bestLineLength; i++){
+            line.append(i > 0 ? " " : "").append(Move.toString(bestLine[i]));
+        }
+        return line.toString();
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta){
+        pvLength[ply] = 0;
+        if (depth <= 0){
+            return quiesce(ply, alpha, beta);
+        }
+        if (++nodes % 2048 == 0){
+            checkLimits();
+        }
+        if (stopped){
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1){
+            return Evaluation.evaluate(position, pawnTable);
+        }
+
+        // A repetition, the fifty-move rule or a board no one can mate on ends the game in a draw
+        if (ply > 0 && (position.isFiftyMoveRule() || position.repetitions() > 0 || position.isInsufficientMaterial())){
+            return 0;
+        }
+
+        // The tablebase score is exact, with its distance to mate counted from the root
+        if (tablebase != null && ply > 0 && Long.bitCount(position.getOccupied()) <= tablebase.getMaxMen()){
+            int score = tablebase.probe(position);
+            if (score != Tablebase.UNKNOWN){
+                return (score > 0) ? score - ply : (score < 0) ? score + ply : 0;
+            }
+        }
+
+        // Uses the stored result if it was searched deep enough, except on the principal variation
+        long key = position.getKey();
+        boolean pvNode = beta - alpha > 1;
+        long entry = table.probe(key);
+        int tableMove = Move.NONE;
+        if (entry != TranspositionTable.MISS){
+            tableMove = TranspositionTable.move(entry);
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth && (bound == TranspositionTable.EXACT ||
+                    (bound == TranspositionTable.LOWER && score >= beta) ||
+                    (bound == TranspositionTable.UPPER && score <= alpha))){
+                return score;
+            }
+        }
+
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        if (inCheck){
+            depth++; // Check extension
+        }
+        int[] list = moves[ply];
+        int count = MoveGenerator.generateLegal(position, list, 0);
+        if (count == 0){
+            return inCheck ? -MATE + ply : 0;
+        }
+        orderMoves(ply, count, tableMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestHere = Move.NONE;
+        for (int i = 0; i < count; i++){
+            int move = pickMove(ply, i, count);
+            position.makeMove(move);
+            int score;
+            if (i == 0){
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }else{
+                // Principal variation search: proves the move is worse with a null window first
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta){
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            position.unmakeMove(move);
+            if (stopped){
+                return 0;
+            }
+
+            if (score > best){
+                best = score;
+                bestHere = move;
+                if (score > alpha){
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (score >= beta){
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)){
+                            rememberCutoff(ply, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = (best >= beta) ? TranspositionTable.LOWER :
+                (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, (bound == TranspositionTable.UPPER) ? Move.NONE : bestHere, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches captures only until the position is quiet. The side to move may stand pat on the
+     * static evaluation instead of capturing, unless it is in check.
+     */
+    private int quiesce(int ply, int alpha, int beta){
+        pvLength[ply] = 0;
+        if (++nodes % 2048 == 0){
+            checkLimits();
+        }
+        if (stopped){
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1){
+            return Evaluation.evaluate(position, pawnTable);
+        }
+
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        int[] list = moves[ply];
+        int best;
+        int count;
+        if (inCheck){
+            best = -INFINITY;
+            count = MoveGenerator.generateLegal(position, list, 0);
+            if (count == 0){
+                return -MATE + ply;
+            }
+        }else{
+            best = Evaluation.evaluate(position, pawnTable);
+            if (best >= beta){
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+            count = MoveGenerator.generateCaptures(position, list, 0);
+        }
+        orderMoves(ply, count, Move.NONE);
+
+        for (int i = 0; i < count; i++){
+            int move = pickMove(ply, i, count);
+            position.makeMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            position.unmakeMove(move);
+            if (stopped){
+                return 0;
+            }
+            if (score > best){
+                best = score;
+                if (score > alpha){
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (score >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gives every move of the ply an ordering score
+     */
+    private void orderMoves(int ply, int count, int tableMove){
+        int[] list = moves[ply];
+        int[] scores = order[ply];
+        for (int i = 0; i < count; i++){
+            int move = list[i];
+            int from = Move.from(move);
+            int to = Move.to(move);
+            if (move == tableMove){
+                scores[i] = TT_MOVE_ORDER;
+            }else if (Move.isCapture(move) || Move.isPromotion(move)){
+                int victim = (Move.flags(move) == Move.EN_PASSANT) ? Position.PAWN :
+                        Move.isCapture(move) ? position.typeAt(to) : -1;
+                scores[i] = CAPTURE_ORDER + ((victim < 0) ? 0 : Evaluation.VALUES[victim] * 8) +
+                        (Move.isPromotion(move) ? Evaluation.VALUES[Move.promotionType(move)] : 0) -
+                        Evaluation.VALUES[position.typeAt(from)] / 100;
+            }else if (move == killers[ply][0]){
+                scores[i] = KILLER_ORDER;
+            }else if (move == killers[ply][1]){
+                scores[i] = KILLER_ORDER - 1;
+            }else{
+                scores[i] = history[from][to];
+            }
+        }
+    }
+
+    /**
+     * Moves the best ordered of the remaining moves to index "i" and returns it
+     */
+    private int pickMove(int ply, int i, int count){
+        int[] list = moves[ply];
+        int[] scores = order[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++){
+            if (scores[j] > scores[best]){
+                best = j;
+            }
+        }
+        int move = list[best];
+        list[best] = list[i];
+        list[i] = move;
+        int score = scores[best];
+        scores[best] = scores[i];
+        scores[i] = score;
+        return move;
+    }
+
+    /**
+     * Records a quiet move which caused a beta cutoff in the killer and history tables
+     */
+    private void rememberCutoff(int ply, int move, int depth){
+        if (killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] row = history[Move.from(move)];
+        row[Move.to(move)] += depth * depth;
+        if (row[Move.to(move)] > HISTORY_LIMIT){
+            for (int[] fromRow : history){
+                for (int to = 0; to < 64; to++){
+                    fromRow[to] /= 2;
+                }
+            }
+        }
+    }
+
+    private void updatePrincipalVariation(int ply, int move){
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private void checkLimits(){
+        if (completedDepth > 0 && (nodes >= nodeLimit || System.nanoTime() >= deadline)){
+            stopped = true;
+        }
+    }
+
+    /**
+     * Mate scores are stored relative to the position instead of the root, so they stay correct
+     * when the position is reached at another ply
+     */
+    static int toTable(int score, int ply){
+        return (score >= MATE - MAX_PLY) ? score + ply : (score <= -MATE + MAX_PLY) ? score - ply : score;
+    }
+
+    static int fromTable(int score, int ply){
+        return (score >= MATE - MAX_PLY) ? score - ply : (score <= -MATE + MAX_PLY) ? score + ply : score;
+    }
+}
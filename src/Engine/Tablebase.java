@@ -0,0 +1,198 @@
+package Engine;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Endgame tables of a directory, looked up by the pieces on the board.
+ *
+ * Each EndgameTable file holds one set of pieces with White as the side which has them, such as
+ * "KRK.tb"; positions where Black has them are looked up with the board turned around. Missing tables
+ * are generated by retrograde analysis (see TablebaseGenerator) together with the smaller tables their
+ * captures and promotions lead to.
+ *
+ * Usage: java Engine.Tablebase generate directory [threads] [tables...] generates the tables, by default
+ * KQK, KRK and KPK, and java Engine.Tablebase probe directory fen prints what the tables say of a position.
+ */
+public final class Tablebase {
+
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    public static final String[] DEFAULT_TABLES = {"KQK", "KRK", "KPK"};
+
+    private static final String PROMOTIONS = "QRBN";
+
+    private final Path directory;
+    private volatile EndgameTable[] tables = new EndgameTable[0];
+    private volatile int maxMen;
+
+    /**
+     * Constructor. Maps every table file of the directory.
+     * @param directory The directory of the table files. It is created when a table is generated.
+     * @throws IOException If a table file can't be read
+     */
+    public Tablebase(Path directory) throws IOException {
+        this.directory = directory;
+        if (Files.isDirectory(directory)){
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.tb")){
+                for (Path file : files){
+                    add(EndgameTable.load(file));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - The most pieces, kings included, of any table
+     */
+    public int getMaxMen(){ return maxMen; }
+
+    /**
+     * @return - The names of the tables
+     */
+    public String[] getTables(){
+        return Arrays.stream(tables).map(EndgameTable::getName).sorted().toArray(String[]::new);
+    }
+
+    /**
+     * Looks up a position in the tables. Doesn't allocate, so it can be called from the search.
+     *
+     * @param position The position
+     * @return - UNKNOWN if there is no table of its pieces or it has castling rights or an en passant square,
+     *           otherwise a score for the side to move as Search gives them: 0 for a draw, MATE - plies if it
+     *           mates or -MATE + plies if it is mated
+     */
+    public int probe(Position position){
+        if (Long.bitCount(position.getOccupied()) > maxMen || position.getCastlingRights() != 0 ||
+                position.getEnPassantSquare() >= 0){
+            return UNKNOWN;
+        }
+        long material = EndgameTable.material(position, false);
+        long flipped = EndgameTable.material(position, true);
+        for (EndgameTable table : tables){
+            if (table.getMaterial() == material || table.getMaterial() == flipped){
+                int entry = table.get(table.index(position, table.getMaterial() != material));
+                int plies = entry - 1;
+                return (entry == EndgameTable.DRAW) ? 0 : ((plies & 1) == 1) ? Search.MATE - plies : -Search.MATE + plies;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Generates a table and every smaller table it depends on which isn't in the directory yet,
+     * writes them to the directory and adds them to the tablebase
+     *
+     * @param name Pieces of the table, such as "KRKN"
+     * @param threads Number of threads generating
+     * @throws IOException If a table can't be written
+     * @throws IllegalArgumentException If "name" isn't a table which can be generated
+     */
+    public synchronized void generate(String name, int threads) throws IOException {
+        EndgameTable table = new EndgameTable(name);
+        if (find(table.getName()) != null){
+            return;
+        }
+        for (String smaller : smallerTables(table.getName())){
+            generate(smaller, threads);
+        }
+
+        long start = System.nanoTime();
+        table.setEntries(new TablebaseGenerator(table, this, threads).generate());
+        Files.createDirectories(directory);
+        Path file = directory.resolve(table.getName() + ".tb");
+        table.write(file);
+        add(EndgameTable.load(file));
+        System.out.printf("%s: %,d positions in %.1f s, %,d bytes%n", table.getName(), table.getSize(),
+                (System.nanoTime() - start) / 1e9, Files.size(file));
+    }
+
+    /**
+     * @return - The table of "name" or of its pieces with the colors swapped, or null if there is none
+     */
+    private EndgameTable find(String name){
+        String flipped = flip(name);
+        for (EndgameTable table : tables){
+            if (table.getName().equals(name) || table.getName().equals(flipped)){
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void add(EndgameTable table){
+        EndgameTable[] grown = Arrays.copyOf(tables, tables.length + 1);
+        grown[tables.length] = table;
+        tables = grown;
+        maxMen = Math.max(maxMen, table.getMen());
+    }
+
+    /**
+     * @return - The tables reached from "name" by the capture of one piece or the promotion of one pawn
+     */
+    private static List<String> smallerTables(String name){
+        List<String> smaller = new ArrayList<>();
+        int blackKing = name.indexOf('K', 1);
+        for (int i = 1; i < name.length(); i++){
+            if (i == blackKing){
+                continue;
+            }
+            smaller.add(name.substring(0, i) + name.substring(i + 1));
+            if (name.charAt(i) == 'P'){
+                for (char promotion : PROMOTIONS.toCharArray()){
+                    smaller.add(name.substring(0, i) + promotion + name.substring(i + 1));
+                }
+            }
+        }
+        return smaller;
+    }
+
+    /**
+     * @return - "name" with the pieces of the two sides swapped
+     */
+    private static String flip(String name){
+        int blackKing = name.indexOf('K', 1);
+        return name.substring(blackKing) + name.substring(0, blackKing);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("generate")){
+            Tablebase tablebase = new Tablebase(Path.of(args[1]));
+            int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            String[] names = (args.length > 3) ? Arrays.copyOfRange(args, 3, args.length) : DEFAULT_TABLES;
+            long start = System.nanoTime();
+            for (String name : names){
+                tablebase.generate(name, threads);
+            }
+            System.out.printf("Tables %s on %d threads in %.1f s%n", String.join(" ", tablebase.getTables()), threads,
+                    (System.nanoTime() - start) / 1e9);
+        }else if (args.length >= 3 && args[0].equals("probe")){
+            Tablebase tablebase = new Tablebase(Path.of(args[1]));
+            Position position = Fen.parse(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+            int score = tablebase.probe(position);
+            if (score == UNKNOWN){
+                System.out.println("Not in the tables");
+            }else{
+                System.out.println((score == 0) ? "Draw" : (score > 0 ? "Mate in " : "Mated in ") +
+                        (Search.MATE - Math.abs(score)) + " plies");
+            }
+
+            // Times the lookup
+            int iterations = 1_000_000;
+            long time = System.nanoTime();
+            long sink = 0;
+            for (int i = 0; i < iterations; i++){
+                sink += tablebase.probe(position);
+            }
+            System.out.printf("Probe %.0f ns (%d)%n", (double)(System.nanoTime() - time) / iterations, sink / iterations);
+        }else{
+            System.err.println("Usage: java Engine.Tablebase generate directory [threads] [tables...]");
+            System.err.println("       java Engine.Tablebase probe directory fen");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package Engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills an EndgameTable by retrograde analysis.
+ *
+ * A first pass over every index finds the mates and stalemates and looks up the moves which leave
+ * the table, captures and promotions, in the smaller tables. Then the table is solved one ply at a
+ * time backwards from the mates: every position from which a piece can move into a position lost
+ * at ply n - 1 is won at ply n, and a position is lost at ply n once each of its moves is known to
+ * lead to a win for the opponent, the slowest one at ply n - 1. The positions a move comes from are
+ * found by moving the pieces backwards, so only the positions next to the last ply are looked at.
+ * Whatever is left when no more positions are solved is a draw.
+ *
+ * Both passes split their work between threads, which share the entries and the count of unsolved
+ * moves of every position through atomic updates.
+ */
+final class TablebaseGenerator {
+
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final int UNSOLVED = 0;
+    private static final int INVALID = 255;         // Entry of an index which isn't a legal position
+    private static final int NEVER_LOST = 255;      // Exit depth of a position which can draw or win
+    private static final int MAX_PLIES = 253;       // Longest distance an entry can hold
+    private static final int CHUNK = 1 << 16;       // Indexes handed to a thread at once in the first pass
+
+    private final EndgameTable table;
+    private final Tablebase smaller;
+    private final int threads;
+
+    private final byte[] entries;       // Plies to mate plus one, UNSOLVED or INVALID
+    private final byte[] moveCounts;    // Moves inside the table not yet known to lose
+    private final byte[] exitDepths;    // Ply of the slowest loss through a move out of the table, or NEVER_LOST
+    private final IntList[] delayed = new IntList[MAX_PLIES + 2];  // Positions found to be solved at a later ply
+    private int lastDelayed;
+
+    /**
+     * Constructor
+     * @param table The table to fill
+     * @param smaller Tables of every set of pieces a capture or promotion can lead to
+     * @param threads Number of threads
+     */
+    TablebaseGenerator(EndgameTable table, Tablebase smaller, int threads){
+        if (hasPawnsOnBothSides(table)){
+            throw new IllegalArgumentException(table.getName() + ": en passant captures aren't supported");
+        }
+        this.table = table;
+        this.smaller = smaller;
+        this.threads = Math.max(1, threads);
+        entries = new byte[table.getSize()];
+        moveCounts = new byte[table.getSize()];
+        exitDepths = new byte[table.getSize()];
+        for (int i = 0; i < delayed.length; i++){
+            delayed[i] = new IntList();
+        }
+    }
+
+    /**
+     * Solves every position of the table
+     * @return - The entries of the table, with illegal positions as draws
+     */
+    byte[] generate(){
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Tablebase generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // First pass, in chunks taken in turn by the threads
+            IntList mates = new IntList();
+            int chunks = (table.getSize() + CHUNK - 1) / CHUNK;
+            run(workers, chunks, (chunk, solved) -> {
+                Position position = new Position();
+                int[] moves = new int[MoveGenerator.MAX_MOVES];
+                for (int index = chunk * CHUNK; index < Math.min((chunk + 1) * CHUNK, table.getSize()); index++){
+                    firstPass(index, position, moves, solved);
+                }
+            }, mates);
+
+            // Then one ply at a time until nothing is left to solve
+            IntList solved = mates;
+            for (int ply = 1; !solved.isEmpty() || ply <= lastDelayed; ply++){
+                if (ply > MAX_PLIES){
+                    throw new IllegalStateException(table.getName() + ": mates are too long for the table");
+                }
+                IntList previous = solved;
+                int current = ply;
+                int parts = Math.min(threads * 4, Math.max(1, previous.size() / 1024));
+                solved = new IntList();
+                run(workers, parts, (part, found) -> {
+                    Position position = new Position();
+                    for (int i = part * previous.size() / parts; i < (part + 1) * previous.size() / parts; i++){
+                        retreat(previous.get(i), current, position, found);
+                    }
+                }, solved);
+                IntList late = delayed[ply];
+                for (int i = 0; i < late.size(); i++){
+                    if (solve(late.get(i), ply)){
+                        solved.add(late.get(i));
+                    }
+                }
+                delayed[ply] = null;
+            }
+        }finally {
+            workers.shutdownNow();
+        }
+
+        for (int i = 0; i < entries.length; i++){
+            if ((entries[i] & 0xFF) == INVALID){
+                entries[i] = EndgameTable.DRAW;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Finds out what is known of one index before the backward passes: whether it is a legal
+     * position, mate or stalemate, and what its captures and promotions lead to
+     */
+    private void firstPass(int index, Position position, int[] moves, IntList mates){
+        if (!table.setUp(index, position) || position.isInCheck(position.getSideToMove() ^ 1)){
+            entries[index] = (byte)INVALID;
+            return;
+        }
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+        if (count == 0){
+            if (position.isInCheck(position.getSideToMove())){
+                entries[index] = 1;
+                mates.add(index);
+            }else{
+                exitDepths[index] = (byte)NEVER_LOST;
+            }
+            return;
+        }
+
+        int inside = 0;
+        int fastestWin = Integer.MAX_VALUE;
+        int slowestLoss = 0;
+        boolean canDraw = false;
+        for (int i = 0; i < count; i++){
+            int move = moves[i];
+            if (!Move.isCapture(move) && !Move.isPromotion(move)){
+                inside++;
+                continue;
+            }
+            position.makeMove(move);
+            int score = smaller.probe(position);
+            position.unmakeMove(move);
+            if (score == Tablebase.UNKNOWN){
+                throw new IllegalStateException(table.getName() + ": no table for " + Move.toString(move) + " in " + Fen.toString(position));
+            }else if (score == 0){
+                canDraw = true;
+            }else if (score < 0){
+                fastestWin = Math.min(fastestWin, Search.MATE + score + 1);
+            }else{
+                slowestLoss = Math.max(slowestLoss, Search.MATE - score + 1);
+            }
+        }
+        if (slowestLoss > MAX_PLIES){
+            throw new IllegalStateException(table.getName() + ": mates are too long for the table");
+        }
+        moveCounts[index] = (byte)inside;
+        exitDepths[index] = (byte)((canDraw || fastestWin != Integer.MAX_VALUE) ? NEVER_LOST : slowestLoss);
+        if (fastestWin != Integer.MAX_VALUE){
+            delay(index, fastestWin);
+        }else if (inside == 0 && !canDraw){
+            delay(index, slowestLoss);
+        }
+    }
+
+    /**
+     * Takes back every move into a position solved at the previous ply, solving the positions
+     * it came from which this decides
+     *
+     * @param index The position solved at ply - 1
+     * @param ply The ply being solved
+     * @param position Scratch position
+     * @param found Receives the positions solved at this ply
+     */
+    private void retreat(int index, int ply, Position position, IntList found){
+        table.setUp(index, position);
+        boolean lost = (ply & 1) == 1;   // The position is lost if mate comes after an even number of plies
+        int mover = position.getSideToMove() ^ 1;
+        int defender = mover ^ 1;
+        position.setSideToMove(mover);
+        int defenderKing = position.kingSquare(defender);
+        long empty = ~position.getOccupied();
+
+        for (int type = 0; type < 6; type++){
+            for (long pieces = position.getPieces(mover, type); pieces != 0; pieces &= pieces - 1){
+                int to = Long.numberOfTrailingZeros(pieces);
+                for (long from = origins(position, mover, type, to, empty); from != 0; from &= from - 1){
+                    int square = Long.numberOfTrailingZeros(from);
+                    position.movePiece(mover, type, to, square);
+                    if (!position.isSquareAttacked(defenderKing, mover)){
+                        int earlier = table.index(position, false);
+                        if (lost){
+                            if (BYTES.compareAndSet(entries, earlier, (byte)UNSOLVED, (byte)(ply + 1))){
+                                found.add(earlier);
+                            }
+                        }else if ((byte)BYTES.getVolatile(entries, earlier) == UNSOLVED &&
+                                decrement(moveCounts, earlier) == 0 &&
+                                (exitDepths[earlier] & 0xFF) != NEVER_LOST){
+                            // Every move loses: as slowly as the slowest of them
+                            int loss = Math.max(ply, exitDepths[earlier] & 0xFF);
+                            if (loss == ply){
+                                if (solve(earlier, ply)){
+                                    found.add(earlier);
+                                }
+                            }else{
+                                delay(earlier, loss);
+                            }
+                        }
+                    }
+                    position.movePiece(mover, type, square, to);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - The empty squares a piece could have moved to "to" from, without capturing or promoting
+     */
+    private static long origins(Position position, int color, int type, int to, long empty){
+        if (type != Position.PAWN){
+            return position.attacksFrom(color, type, to) & empty;
+        }
+        int back = (color == Position.WHITE) ? 8 : -8;
+        int from = to + back;
+        if (from < 8 || from >= 56 || (empty & 1L << from) == 0){
+            return 0L;
+        }
+        long origins = 1L << from;
+        int doubleFrom = from + back;
+        if (Bitboards.rankOf(doubleFrom) == ((color == Position.WHITE) ? 6 : 1) && (empty & 1L << doubleFrom) != 0){
+            origins |= 1L << doubleFrom;
+        }
+        return origins;
+    }
+
+    /**
+     * Gives an unsolved position its distance to mate
+     * @return - True if the position wasn't solved already
+     */
+    private boolean solve(int index, int ply){
+        return BYTES.compareAndSet(entries, index, (byte)UNSOLVED, (byte)(ply + 1));
+    }
+
+    /**
+     * Atomically lowers a count by one. A compare-and-set loop, as getAndAdd on byte arrays gives wrong
+     * results once compiled on some JVMs.
+     * @return - The new count
+     */
+    private static int decrement(byte[] counts, int index){
+        byte count;
+        do {
+            count = (byte)BYTES.getVolatile(counts, index);
+        }while (!BYTES.compareAndSet(counts, index, count, (byte)(count - 1)));
+        return count - 1;
+    }
+
+    private void delay(int index, int ply){
+        if (ply > MAX_PLIES){
+            throw new IllegalStateException(table.getName() + ": mates are too long for the table");
+        }
+        synchronized (delayed){
+            delayed[ply].add(index);
+            lastDelayed = Math.max(lastDelayed, ply);
+        }
+    }
+
+    private static boolean hasPawnsOnBothSides(EndgameTable table){
+        boolean[] pawns = new boolean[2];
+        for (int i = 0; i < table.getMen(); i++){
+            pawns[table.getColor(i)] |= table.getType(i) == Position.PAWN;
+        }
+        return pawns[0] && pawns[1];
+    }
+
+    /**
+     * Work on one part of a pass, adding the positions it solves to its own list
+     */
+    private interface Part {
+        void run(int part, IntList solved);
+    }
+
+    /**
+     * Runs "parts" parts on the threads and adds what they solved to "solved"
+     */
+    private static void run(ExecutorService workers, int parts, Part work, IntList solved){
+        List<Future<IntList>> running = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++){
+            int part = i;
+            running.add(workers.submit(() -> {
+                IntList found = new IntList();
+                work.run(part, found);
+                return found;
+            }));
+        }
+        for (Future<IntList> part : running){
+            try {
+                solved.addAll(part.get());
+            }catch (Exception e){
+                throw new IllegalStateException("Tablebase generation failed", e.getCause() != null ? e.getCause() : e);
+            }
+        }
+    }
+
+    /**
+     * Growable list of indexes
+     */
+    private static final class IntList {
+        private int[] items = new int[16];
+        private int size;
+
+        void add(int item){
+            if (size == items.length){
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        void addAll(IntList other){
+            if (size + other.size > items.length){
+                items = Arrays.copyOf(items, Math.max(items.length * 2, size + other.size));
+            }
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+        }
+
+        int get(int i){ return items[i]; }
+        int size(){ return size; }
+        boolean isEmpty(){ return size == 0; }
+    }
+}
@@ -0,0 +1,157 @@
+package Engine;
+
+/**
+ * Fixed-size table of search results keyed by the Zobrist key of a position, so a position
+ * reached again (by another move order, or in the next search) can reuse what was found for it.
+ *
+ * Entries are two longs in a primitive array: the move, score, depth, bound and search generation
+ * packed into one word, and the key XORed with that word. Entries are grouped in buckets of two.
+ * The first entry of a bucket keeps the deepest result of the current search, and the second is
+ * always replaced, so deep results survive while recent shallow ones still get stored.
+ *
+ * The table is shared by the threads of a parallel search without locks. Two threads can write the
+ * same entry at once and leave the key of one with the data of the other, but then the key no
+ * longer XORs back to the one being probed, so the torn entry is treated as a miss.
+ */
+public final class TranspositionTable {
+
+    /**
+     * Bound types, telling how the stored score relates to the real one
+     */
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // The real score is at least the stored one (fail high)
+    public static final int UPPER = 3; // The real score is at most the stored one (fail low)
+
+    /**
+     * Returned by probe when the position isn't in the table
+     */
+    public static final long MISS = 0;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_SIZE = 2;
+
+    private long[] keys;
+    private long[] data;
+    private int bucketMask;
+    private int generation;
+
+    /**
+     * Constructor
+     * @param megabytes Memory used by the table, rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes){
+        resize(megabytes);
+    }
+
+    /**
+     * Reallocates the table, which clears it
+     * @param megabytes Memory used by the table, rounded down to a power of two
+     */
+    public void resize(int megabytes){
+        long entries = Math.max((long)megabytes << 20, ENTRY_BYTES * BUCKET_SIZE) / ENTRY_BYTES;
+        entries = Long.highestOneBit(Math.min(entries, 1L << 30));
+        keys = new long[(int)entries];
+        data = new long[(int)entries];
+        bucketMask = (int)(entries / BUCKET_SIZE) - 1;
+        generation = 0;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear(){
+        java.util.Arrays.fill(keys, 0);
+        java.util.Arrays.fill(data, 0);
+        generation = 0;
+    }
+
+    /**
+     * Called at the start of every search, so the entries of older searches are replaced first
+     */
+    public void newSearch(){
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * @return - The memory used by the table in megabytes
+     */
+    public int getMegabytes(){ return (int)((long)keys.length * ENTRY_BYTES >> 20); }
+
+    /**
+     * @param key Zobrist key of the position
+     * @return - The packed entry of the position, or MISS. Read it with move, score, depth and bound.
+     */
+    public long probe(long key){
+        int index = index(key);
+        for (int i = index; i < index + BUCKET_SIZE; i++){
+            long entry = data[i];
+            if ((keys[i] ^ entry) == key && entry != MISS){
+                return entry;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores a search result, replacing the less useful entry of its bucket
+     *
+     * @param key Zobrist key of the position
+     * @param move Best move found, or Move.NONE to keep the move already stored for the position
+     * @param score Score of the position
+     * @param depth Depth searched
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound){
+        int index = index(key);
+        long first = data[index];
+        int slot;
+        if ((keys[index] ^ first) == key || depth >= depth(first) || generation(first) != generation){
+            slot = index; // Same position, a deeper result, or left from an older search
+        }else{
+            slot = index + 1;
+        }
+        long old = data[slot];
+        if (move == Move.NONE && (keys[slot] ^ old) == key){
+            move = move(old);
+        }
+        long entry = pack(move, score, depth, bound, generation);
+        keys[slot] = key ^ entry;
+        data[slot] = entry;
+    }
+
+    /**
+     * @return - The number of entries out of the first thousand which were written in the current search
+     */
+    public int hashfull(){
+        int used = 0;
+        int sample = Math.min(1000, data.length);
+        for (int i = 0; i < sample; i++){
+            if (data[i] != MISS && generation(data[i]) == generation){
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long entry){ return (int)(entry & 0xFFFF); }
+
+    public static int score(long entry){ return (short)(entry >>> 16); }
+
+    public static int depth(long entry){ return (byte)(entry >>> 32); }
+
+    public static int bound(long entry){ return (int)(entry >>> 40) & 3; }
+
+    private static int generation(long entry){ return (int)(entry >>> 42) & 0xFF; }
+
+    private static long pack(int move, int score, int depth, int bound, int generation){
+        return (move & 0xFFFFL) | (score & 0xFFFFL) << 16 | (depth & 0xFFL) << 32 | (long)bound << 40 |
+                (long)generation << 42;
+    }
+
+    /**
+     * @return - The index of the first entry of the bucket of "key"
+     */
+    private int index(long key){
+        return ((int)(key >>> 32) & bucketMask) * BUCKET_SIZE;
+    }
+}
@@ -0,0 +1,348 @@
+package Engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Universal Chess Interface front end, so the engine can be run by chess GUIs and tournament
+ * managers over the standard input and output.
+ *
+ * Commands are read on the calling thread and every "go" searches on a thread of its own, so
+ * "stop", "isready" and "ponderhit" are answered while it runs. "stop" keeps stopping the search
+ * until its thread ends, which also catches a search which hadn't started its threads yet. After
+ * "go infinite" or "go ponder" the best move is held back until "stop" or "ponderhit", as the
+ * protocol asks; on "ponderhit" the search gets the time the "go" command gave it, counted from then.
+ *
+ * Supported options are Hash (megabytes of the transposition table), Threads and Ponder. Endgame
+ * tables are read from a "tablebases" directory in the working directory, if there is one.
+ *
+ * Usage: java Engine.Uci
+ */
+public final class Uci {
+
+    private static final String NAME = "Chess Game";
+    private static final int DEFAULT_HASH = 32;
+    private static final int MAX_HASH = 4096;
+    private static final int MAX_THREADS = 256;
+    private static final int MOVES_TO_GO = 30;     // Moves the remaining time is shared by when the GUI doesn't say
+    private static final int MOVE_OVERHEAD = 50;   // Milliseconds kept back for the GUI to receive the move
+
+    private final PrintStream out;
+    private final Tablebase tablebase;
+    private final TranspositionTable table = new TranspositionTable(DEFAULT_HASH);
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "UCI timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ParallelSearch engine;
+    private Position position = Fen.parse(Fen.START);
+
+    /**
+     * State of the running search, guarded by "this"
+     */
+    private Thread searchThread;
+    private boolean holding;            // Whether the best move waits for stop or ponderhit
+    private long ponderMillis;          // Time budget of a ponder search once the move is played, 0 for none
+    private ScheduledFuture<?> timeout;
+
+    /**
+     * Constructor
+     * @param out Receives the engine's messages
+     * @param tablebase Endgame tables used by the search, or null for none
+     */
+    public Uci(PrintStream out, Tablebase tablebase){
+        this.out = out;
+        this.tablebase = tablebase;
+        this.engine = new ParallelSearch(table, tablebase, 1);
+    }
+
+    /**
+     * Handles commands until "quit" or the end of the input
+     * @param in The commands, one per line
+     * @throws IOException If reading fails
+     */
+    public void run(BufferedReader in) throws IOException {
+        for (String line = in.readLine(); line != null; line = in.readLine()){
+            if (!handle(line.trim())){
+                break;
+            }
+        }
+        stopSearch();
+        engine.close();
+    }
+
+    /**
+     * @param command One line of input
+     * @return - False if it was "quit"
+     */
+    public boolean handle(String command){
+        String[] words = command.split("\\s+");
+        switch (words[0]){
+            case "uci" -> {
+                send("id name " + NAME);
+                send("id author " + NAME + " contributors");
+                send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("uciok");
+            }
+            case "isready" -> send("readyok");
+            case "ucinewgame" -> {
+                stopSearch();
+                table.clear();
+            }
+            case "setoption" -> setOption(command);
+            case "position" -> {
+                stopSearch();
+                setPosition(words);
+            }
+            case "go" -> {
+                stopSearch();
+                go(words);
+            }
+            case "stop" -> stopSearch();
+            case "ponderhit" -> ponderHit();
+            case "quit" -> {
+                return false;
+            }
+            default -> {} // Unknown commands are ignored, as the protocol asks
+        }
+        return true;
+    }
+
+    /**
+     * Handles "setoption name <name> value <value>"
+     */
+    private void setOption(String command){
+        int nameAt = command.indexOf(" name ");
+        int valueAt = command.indexOf(" value ");
+        if (nameAt < 0 || valueAt < nameAt){
+            return;
+        }
+        String name = command.substring(nameAt + 6, valueAt).trim();
+        String value = command.substring(valueAt + 7).trim();
+        try {
+            if (name.equalsIgnoreCase("Hash")){
+                stopSearch();
+                table.resize(Math.max(1, Math.min(Integer.parseInt(value), MAX_HASH)));
+            }else if (name.equalsIgnoreCase("Threads")){
+                stopSearch();
+                engine.close();
+                engine = new ParallelSearch(table, tablebase, Math.max(1, Math.min(Integer.parseInt(value), MAX_THREADS)));
+            }
+        }catch (NumberFormatException e){
+            send("info string Invalid value for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Handles "position startpos|fen <fen> [moves <moves>]". The moves are played with makeMove, so
+     * the search sees repetitions of the game.
+     */
+    private void setPosition(String[] words){
+        int movesAt = words.length;
+        for (int i = 1; i < words.length; i++){
+            if (words[i].equals("moves")){
+                movesAt = i;
+                break;
+            }
+        }
+        Position next;
+        try {
+            if (words.length > 1 && words[1].equals("fen")){
+                next = Fen.parse(String.join(" ", java.util.Arrays.copyOfRange(words, 2, movesAt)));
+            }else{
+                next = Fen.parse(Fen.START);
+            }
+        }catch (IllegalArgumentException e){
+            send("info string " + e.getMessage());
+            return;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int i = movesAt + 1; i < words.length; i++){
+            int move = findMove(next, words[i], moves);
+            if (move == Move.NONE){
+                send("info string Illegal move " + words[i]);
+                break;
+            }
+            next.makeMove(move);
+        }
+        position = next;
+    }
+
+    /**
+     * @return - The legal move of "position" written as "text" in coordinate notation, or Move.NONE
+     */
+    private static int findMove(Position position, String text, int[] moves){
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+        for (int i = 0; i < count; i++){
+            if (Move.toString(moves[i]).equals(text)){
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Handles "go" and its limits, starting the search thread
+     */
+    private void go(String[] words){
+        int maxDepth = Search.MAX_PLY;
+        long moveTime = 0;
+        long maxNodes = 0;
+        long[] time = new long[2];
+        long[] increment = new long[2];
+        int movesToGo = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        try {
+            for (int i = 1; i < words.length; i++){
+                String value = (i + 1 < words.length) ? words[i + 1] : "0";
+                switch (words[i]){
+                    case "depth" -> maxDepth = Math.max(1, Math.min(Integer.parseInt(value), Search.MAX_PLY));
+                    case "movetime" -> moveTime = Long.parseLong(value);
+                    case "nodes" -> maxNodes = Long.parseLong(value);
+                    case "wtime" -> time[Position.WHITE] = Long.parseLong(value);
+                    case "btime" -> time[Position.BLACK] = Long.parseLong(value);
+                    case "winc" -> increment[Position.WHITE] = Long.parseLong(value);
+                    case "binc" -> increment[Position.BLACK] = Long.parseLong(value);
+                    case "movestogo" -> movesToGo = Integer.parseInt(value);
+                    case "mate" -> maxDepth = Math.max(1, Math.min(Integer.parseInt(value) * 2, Search.MAX_PLY));
+                    case "infinite" -> infinite = true;
+                    case "ponder" -> ponder = true;
+                    default -> {}
+                }
+            }
+        }catch (NumberFormatException e){
+            send("info string Invalid go command");
+            return;
+        }
+
+        // Share the clock over the moves left, keeping back the overhead
+        int side = position.getSideToMove();
+        long millis = moveTime;
+        if (millis == 0 && time[side] > 0){
+            millis = time[side] / ((movesToGo > 0) ? movesToGo : MOVES_TO_GO) + increment[side] * 3 / 4;
+            millis = Math.max(1, Math.min(millis, time[side] - MOVE_OVERHEAD));
+        }
+
+        Position root = position;
+        int depth = maxDepth;
+        long nodes = maxNodes;
+        long budget = (infinite || ponder) ? 0 : millis;
+        synchronized (this){
+            holding = infinite || ponder;
+            ponderMillis = ponder ? millis : 0;
+            searchThread = new Thread(() -> {
+                long start = System.nanoTime();
+                Search result = engine.search(root, depth, budget, nodes);
+                waitForRelease();
+                report(result, (System.nanoTime() - start) / 1_000_000);
+            }, "UCI search");
+            searchThread.setDaemon(true);
+            searchThread.start();
+        }
+    }
+
+    /**
+     * The move was played as pondered: the search goes on with the time of its "go" command
+     */
+    private synchronized void ponderHit(){
+        if (searchThread != null && holding){
+            holding = false;
+            if (ponderMillis > 0){
+                timeout = timer.schedule(engine::stop, ponderMillis, TimeUnit.MILLISECONDS);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks the search thread while its best move is held back
+     */
+    private synchronized void waitForRelease(){
+        while (holding){
+            try {
+                wait();
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the running search, if any, and waits until it has sent its best move
+     */
+    private void stopSearch(){
+        Thread running;
+        synchronized (this){
+            running = searchThread;
+            holding = false;
+            notifyAll();
+        }
+        while (running != null && running.isAlive()){
+            engine.stop();
+            try {
+                running.join(1);
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        synchronized (this){
+            searchThread = null;
+            if (timeout != null){
+                timeout.cancel(false);
+                timeout = null;
+            }
+        }
+    }
+
+    /**
+     * Sends the result of a search: its last iteration and the best move, with the expected reply to ponder on
+     */
+    private void report(Search result, long millis){
+        int score = result.getScore();
+        long nodes = engine.getNodes();
+        String line = result.getPrincipalVariation();
+        send("info depth " + result.getDepth() + " score " + ((Math.abs(score) >= Search.MATE - Search.MAX_PLY) ?
+                "mate " + ((score > 0) ? "" : "-") + (Search.MATE - Math.abs(score) + 1) / 2 : "cp " + score) +
+                " nodes " + nodes + " nps " + nodes * 1000 / Math.max(1, millis) + " time " + millis +
+                (line.isEmpty() ? "" : " pv " + line));
+        String[] moves = line.split(" ");
+        int best = result.getBestMove();
+        send("bestmove " + ((best == Move.NONE) ? "0000" : Move.toString(best)) +
+                ((moves.length > 1 && moves[0].equals(Move.toString(best))) ? " ponder " + moves[1] : ""));
+    }
+
+    private void send(String message){
+        synchronized (out){
+            out.println(message);
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of("tablebases");
+        Tablebase tablebase = null;
+        if (Files.isDirectory(directory)){
+            try {
+                tablebase = new Tablebase(directory);
+            }catch (IOException e){
+                System.err.println("Tablebases not loaded: " + e.getMessage());
+            }
+        }
+        new Uci(System.out, tablebase).run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+}
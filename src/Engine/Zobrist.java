@@ -0,0 +1,46 @@
+package Engine;
+
+/**
+ * Random numbers for Zobrist hashing. The key of a position is the XOR of the number for every
+ * piece on its square, the side to move, the castling rights and the en passant file, so a
+ * move changes the key by XORing in only the numbers of what it changed.
+ */
+public final class Zobrist {
+
+    public static final long[][] PIECES = new long[12][64];  // [color*6 + type][square]
+    public static final long[] CASTLING = new long[16];       // [castling rights]
+    public static final long[] EN_PASSANT = new long[8];      // [file]
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x2C1B3C6D5A4F7E81L; // Fixed, so keys are the same on every run and can be stored
+        for (int piece = 0; piece < 12; piece++){
+            for (int square = 0; square < 64; square++){
+                seed = next(seed);
+                PIECES[piece][square] = mix(seed);
+            }
+        }
+        for (int rights = 1; rights < 16; rights++){
+            seed = next(seed);
+            CASTLING[rights] = mix(seed);
+        }
+        for (int file = 0; file < 8; file++){
+            seed = next(seed);
+            EN_PASSANT[file] = mix(seed);
+        }
+        BLACK_TO_MOVE = mix(next(seed));
+    }
+
+    private Zobrist(){}
+
+    /**
+     * SplitMix64 step and finalizer
+     */
+    private static long next(long seed){ return seed + 0x9E3779B97F4A7C15L; }
+
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
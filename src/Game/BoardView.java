@@ -0,0 +1,195 @@
+package Game;
+
+import Engine.*;
+import Pieces.*;
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class BoardView extends JPanel {
+
+    /**
+     * UI Elements
+     */
+    private final Chessboard theChessboard;
+    private final JFrame frame;
+    private final int xDist;
+    private final int yDist;
+    private final Map<Piece, JLabel> images = new IdentityHashMap<>(); // Image of every piece on the board
+    private final ArrayList<JLabel> circles = new ArrayList<>();
+    private final ArrayList<JLabel> test = new ArrayList<>();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES]; // Reused for the moves of the selected piece
+
+    /**
+     * Constructor for the view of a Chessboard
+     * @param theChessboard The headless board being rendered
+     * @param frame Frame holding everything from Java Swing
+     * @param xDist Starting x-coordinate of the chessboard
+     * @param yDist Starting y-coordinate of the chessboard
+     */
+    public BoardView(Chessboard theChessboard, JFrame frame, int xDist, int yDist){
+        this.theChessboard = theChessboard;
+        this.frame = frame;
+        this.xDist = xDist;
+        this.yDist = yDist;
+    }
+
+    /**
+     * Creates the checkerboard pattern in the graphics
+     * @param g Graphics object from Java swing
+     */
+    public void paint(Graphics g){
+
+        g.setColor(new Color(184,139,74)); // "Dark" square color
+        g.fillRect(xDist, yDist, 400, 400);
+
+        g.setColor(new Color(227,193,111)); // "Light" square color
+        for (int i = xDist; i<xDist+400; i+=100){
+            for (int j = xDist; j<xDist+400; j+=50) {
+                int increment = ((j/50) % 2 == 1) ? 50 : 0;
+                g.fillRect(i + increment, j, 50, 50);
+            }
+        }
+    }
+
+    /**
+     * Brings the piece images in line with the Chessboard: adds images for new pieces, moves every image
+     * to its piece's square and removes the images of captured pieces.
+     */
+    public void sync(){
+        Map<Piece, JLabel> onBoard = new IdentityHashMap<>();
+        for (Piece thePiece : theChessboard.getList()){
+            JLabel image = images.remove(thePiece);
+            if (image == null){
+                image = getNewImage(thePiece.getPlayer(), thePiece.getType());
+                frame.add(image);
+            }
+            image.setBounds(xDist+thePiece.getXPos(), yDist+thePiece.getYPos(),50,50);
+            onBoard.put(thePiece, image);
+        }
+        for (JLabel captured : images.values()){
+            frame.remove(captured);
+        }
+        images.clear();
+        images.putAll(onBoard);
+
+        frame.remove(this);
+        frame.add(this);
+        frame.repaint();
+    }
+
+    /**
+     * This function puts a gray circle icon over all the squares on the board
+     * that "thePiece" can legally move to.
+     *
+     * @param thePiece - The piece in which to highlight its legal moves
+     */
+    public void highlightSquares(Piece thePiece){
+        Piece[][] board = theChessboard.getBoard();
+        int count = thePiece.getLegalMoves(moves, 0);
+
+        for (int i = 0; i < count; i++){
+            int to = Move.to(moves[i]);
+            if (i > 0 && Move.to(moves[i-1]) == to){
+                continue; // Promotions to each piece share one square
+            }
+            Piece target = board[Bitboards.rankOf(to)][Bitboards.fileOf(to)];
+            JLabel circle = new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/dot.png")));
+            circles.add(circle);
+            frame.add(circle);
+            circle.setBounds(xDist+target.getXPos(), yDist+target.getYPos(),50,50);
+            //puts the circle on top of the piece if there is a piece here
+            JLabel image = images.get(target);
+            if (image != null){
+                frame.remove(image);
+                frame.add(image);
+            }
+        }
+        frame.remove(this);
+        frame.add(this);
+        frame.repaint();
+    }
+
+    /**
+     * Removes any gray circles currently on the Chessboard
+     */
+    public void removeCircles(){
+        for (int i = circles.size()-1; i>=0; i--){
+            frame.remove(circles.get(i));
+            circles.remove(i);
+        }
+        frame.repaint();
+    }
+
+    /**
+     * This function puts an "x" icon over all the squares on the board which are under attack by the other player
+     */
+    public void underAttackSquares(){
+        for (Piece thePiece : theChessboard.getPiecesUnderAttack()){
+            markSquare(thePiece);
+        }
+        frame.remove(this);
+        frame.add(this);
+    }
+
+    /**
+     * Same as underAttackSquares
+     */
+    public void newUnderAttackSquares(){
+        underAttackSquares();
+    }
+
+    /**
+     * Puts a red "x" icon over the square of "thePiece"
+     * @param thePiece The square being marked
+     */
+    public void markSquare(Piece thePiece){
+        test.add(new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/x.png"))));
+        frame.add(test.get(test.size()-1));
+        test.get(test.size()-1).setBounds(xDist+thePiece.getXPos(), yDist+thePiece.getYPos(),50,50);
+    }
+
+    /**
+     * Removes any red "x" icons over the board from the "underAttackSquares()" method
+     */
+    public void removeUnderAttack(){
+        for (int i = test.size()-1; i>=0; i--){
+            frame.remove(test.get(i));
+            test.remove(i);
+        }
+        frame.repaint();
+    }
+
+    /**
+     * This function returns the image of a piece depending on "player" and "piece"
+     *
+     * @param player - Designates whose piece (1=white/2=black)
+     * @param piece - Designates which type (1=Rook, 2=Knight, 3=Bishop, 4=Queen, 5=King, 6=Pawn)
+     * @return - Returns a JLabel of the Image representing the designated piece
+     */
+    public static JLabel getNewImage(int player, int piece){
+        return switch (player) {
+            case 1 -> switch (piece) {
+                case 1 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/wRook.png")));
+                case 2 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/wKnight.png")));
+                case 3 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/wBishop.png")));
+                case 4 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/wQueen.png")));
+                case 5 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/wKing.png")));
+                case 6 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/wPawn.png")));
+                default -> null;
+            };
+            case 2 -> switch (piece) {
+                case 1 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/bRook.png")));
+                case 2 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/bKnight.png")));
+                case 3 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/bBishop.png")));
+                case 4 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/bQueen.png")));
+                case 5 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/bKing.png")));
+                case 6 -> new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/bPawn.png")));
+                default -> null;
+            };
+            default -> null;
+        };
+    }
+}
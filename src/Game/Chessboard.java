@@ -1,19 +1,29 @@
 package Game;
 
+import Engine.*;
 import Pieces.*;
-import javax.swing.*;
-import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 
-public class Chessboard extends JPanel {
+public class Chessboard {
 
     /**
-     * UI Elements
+     * Board state. The Chessboard holds no references to Swing or to the Game, so the
+     * rules can run headless; BoardView renders it.
      */
-    private final Game theGame;
     private final Piece[][] board = new Piece[8][8]; // Sets the size of the board to an 8x8 2d Array
-    private final ArrayList<JLabel> circles = new ArrayList<>();
-    private final ArrayList<JLabel> test = new ArrayList<>();
+    private final Piece[][] emptySquares = new Piece[8][8]; // One reusable empty piece for every square
+    private final Position position = new Position();  // Bitboards kept in sync with the pieces in the lists
+    private int turn = 1;                             // Total number of turns played, starting at 1
+    private boolean irreversible = false;             // Whether a capture or pawn move was made this turn
+
+    /**
+     * Legal moves of the current player, generated once per position. Generating them only reads
+     * the Position (its attack queries cache nothing), and the array is never written after it is
+     * published, so any number of threads may query legality at the same time; two threads which
+     * both find it missing generate the same moves.
+     */
+    private volatile int[] legalMoves;                // null when the board has changed since the moves were generated
 
     /**
      * Variables used in en-passant related moves
@@ -36,7 +46,7 @@ public class Chessboard extends JPanel {
     public ArrayList<Piece> getListOfWhitePieces(){ return listOfWhitePieces;}
     public ArrayList<Piece> getListOfBlackPieces(){ return listOfBlackPieces;}
     public ArrayList<Piece> getCurrentPlayerPieces(boolean current){
-        return ((theGame.getTurn() == 1 && current) || (theGame.getTurn()==2 && !current)) ? listOfWhitePieces :
+        return ((getTurn() == 1 && current) || (getTurn()==2 && !current)) ? listOfWhitePieces :
                 listOfBlackPieces;
     }
 
@@ -48,9 +58,230 @@ public class Chessboard extends JPanel {
     }
 
     /**
-     * @return the overall game object that the chessboard is associated with
+     * @return - The bitboard position which mirrors the pieces on this Chessboard
+     */
+    public Position getPosition(){ return position; }
+
+    /**
+     * @param rank Rank position on the Chessboard
+     * @param file File position on the Chessboard
+     * @return - The empty piece used for the square at (rank, file)
+     */
+    public Piece getEmptySquare(int rank, int file){ return emptySquares[rank][file]; }
+
+    /**
+     * Converts a bitboard of squares into the pieces (or empty squares) currently on them
+     * @param squares Bitboard of squares
+     * @return - The pieces on the board at the given squares
+     */
+    public ArrayList<Piece> getSquares(long squares){
+        ArrayList<Piece> list = new ArrayList<>(Long.bitCount(squares));
+        while (squares != 0){
+            int square = Long.numberOfTrailingZeros(squares);
+            list.add(board[Bitboards.rankOf(square)][Bitboards.fileOf(square)]);
+            squares &= squares - 1;
+        }
+        return list;
+    }
+
+    /**
+     * @return - The Zobrist key identifying the current position, including turn, castling and en passant
+     */
+    public long getKey(){ return position.getKey(); }
+
+    /**
+     * @return - The number of legal moves the current player has
+     */
+    public int getLegalMoveCount(){
+        return legalMoves().length;
+    }
+
+    /**
+     * @return - The legal moves of the current player, generated if the board has changed since the last call
+     */
+    private int[] legalMoves(){
+        int[] moves = legalMoves;
+        if (moves == null){
+            int[] buffer = new int[MoveGenerator.MAX_MOVES];
+            moves = Arrays.copyOf(buffer, MoveGenerator.generateLegal(position, buffer, 0));
+            legalMoves = moves;
+        }
+        return moves;
+    }
+
+    /**
+     * Copies the legal moves of the current player into "moves"
+     * @param moves Array receiving the encoded moves, with room for MoveGenerator.MAX_MOVES after "start"
+     * @param start Index of the first move written
+     * @return - The index after the last move written
      */
-    public Game getTheGame(){ return theGame;}
+    public int getLegalMoves(int[] moves, int start){
+        int[] legal = legalMoves();
+        System.arraycopy(legal, 0, moves, start, legal.length);
+        return start + legal.length;
+    }
+
+    /**
+     * Copies the legal moves of the piece on "square" into "moves"
+     * @param square Square index of one of the current player's pieces
+     * @param moves Array receiving the encoded moves, with room for MoveGenerator.MAX_MOVES after "start"
+     * @param start Index of the first move written
+     * @return - The index after the last move written
+     */
+    public int getLegalMoves(int square, int[] moves, int start){
+        int count = start;
+        for (int move : legalMoves()){
+            if (Move.from(move) == square){
+                moves[count++] = move;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param square Square index of one of the current player's pieces
+     * @return - A bitboard of the squares the piece on "square" can legally move to
+     */
+    public long getLegalTargets(int square){
+        long targets = 0L;
+        for (int move : legalMoves()){
+            if (Move.from(move) == square){
+                targets |= 1L << Move.to(move);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the legal move of the current player from "from" to "to", with its flags filled in by
+     * the move generator. A pawn reaching the last rank gets the promotion to a Queen.
+     *
+     * @param from Starting square
+     * @param to Final square
+     * @return - The encoded move (see Move), or Move.NONE if there is no such legal move
+     */
+    public int findLegalMove(int from, int to){
+        for (int move : legalMoves()){
+            if (Move.from(move) == from && Move.to(move) == to &&
+                    (!Move.isPromotion(move) || Move.promotionType(move) == Position.QUEEN)){
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * @param move An encoded move (see Move)
+     * @return - True if "move", including its flags and promotion piece, is legal for the current player
+     */
+    public boolean isLegal(int move){
+        for (int legal : legalMoves()){
+            if (legal == move){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return - The current player turn
+     **/
+    public int getTurn(){ return (turn % 2 == 1) ? 1 : 2; }
+
+    /**
+     * @return - The total number of turns
+     */
+    public int getTotalTurns(){
+        return turn;
+    }
+
+    /**
+     * Passes the turn to the other player and brings the rest of the Position's state up to date
+     */
+    public void nextTurn(){
+        turn++;
+        legalMoves = null;
+        position.setHalfmoveClock(irreversible ? 0 : position.getHalfmoveClock() + 1);
+        irreversible = false;
+        syncState();
+    }
+
+    /**
+     * Copies the side to move, castling rights and en passant square into the Position, which
+     * updates its Zobrist key. Castling rights come from whether each king and rook has moved, and
+     * the en passant square is only set if one of the current player's pawns can capture onto it.
+     */
+    private void syncState(){
+        position.setSideToMove(getTurn() - 1);
+        position.setFullmoveNumber((turn + 1) / 2);
+        int rights = 0;
+        for (int i = 0; i < 2; i++){
+            int rank = (i == 0) ? 7 : 0;            // White's back rank, then Black's
+            int player = i + 1;
+            Piece king = board[rank][4];
+            if (king instanceof King && king.getPlayer() == player && !king.getHasMoved()){
+                if (board[rank][7] instanceof Rook && board[rank][7].getPlayer() == player && !board[rank][7].getHasMoved()){
+                    rights |= (i == 0) ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+                }
+                if (board[rank][0] instanceof Rook && board[rank][0].getPlayer() == player && !board[rank][0].getHasMoved()){
+                    rights |= (i == 0) ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+                }
+            }
+        }
+        position.setCastlingRights(rights);
+        int enPassant = -1;
+        if (enPassantTarget != null && enPassantTurn + 1 == turn){
+            int square = Bitboards.square(enPassantTarget.getRank(), enPassantTarget.getFile());
+            int color = getTurn() - 1;
+            if ((Bitboards.PAWN_ATTACKS[color ^ 1][square] & position.getPieces(color, Position.PAWN)) != 0){
+                enPassant = square;
+            }
+        }
+        position.setEnPassantSquare(enPassant);
+    }
+
+    /**
+     * Plays an encoded move and passes the turn. This is the only place a move changes the board:
+     * the rook is moved when castling, the pawn taken En Passant is removed and a pawn reaching the
+     * last rank becomes the piece chosen in the move.
+     * @param move A legal move of the current player (see Move)
+     */
+    public void play(int move){
+        if (!isLegal(move)){
+            throw new IllegalArgumentException("Illegal move " + Move.toString(move));
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        Piece start = board[Bitboards.rankOf(from)][Bitboards.fileOf(from)];
+        Piece end = board[Bitboards.rankOf(to)][Bitboards.fileOf(to)];
+        int rank = start.getRank();
+        position.recordPosition();
+
+        // Lets the square the pawn skips over be taken En Passant on the next turn
+        if (flags == Move.DOUBLE_PUSH){
+            setEnPassant(board[(rank + end.getRank()) / 2][end.getFile()]);
+        }
+
+        // Removes the pawn taken by En Passant, which is beside the pawn instead of on the square being moved to
+        if (flags == Move.EN_PASSANT){
+            removePiece(board[rank][end.getFile()]);
+            board[rank][end.getFile()] = emptySquares[rank][end.getFile()];
+        }
+
+        // Moves the Rook to the other side of the King when castling
+        if (Move.isCastle(move)){
+            boolean kingside = flags == Move.KING_CASTLE;
+            move(board[rank][kingside ? 7 : 0], board[rank][kingside ? 5 : 3]);
+        }
+
+        start.hasMoved();
+        move(start, end);
+        if (Move.isPromotion(move)){
+            promote(start, Move.promotionType(move) + 1);
+        }
+        nextTurn();
+    }
 
     /**
      * @return The target square of legal En Passant.
@@ -68,9 +299,42 @@ public class Chessboard extends JPanel {
      * @param enPassantTarget - Must be the empty square between the pawn's initial position and final position
      *                                  when moving two forwards on the first move.
      */
-    public void setEnPassant(Piece enPassantTarget){
+    private void setEnPassant(Piece enPassantTarget){
         this.enPassantTarget = enPassantTarget;
-        this.enPassantTurn = theGame.getTotalTurns();
+        this.enPassantTurn = getTotalTurns();
+    }
+
+    /**
+     * Replaces a pawn on the last rank with a new piece of the chosen type on the same square.
+     * @param thePawn The pawn being promoted
+     * @param type Type of the new piece (1=Rook, 2=Knight, 3=Bishop, 4=Queen)
+     */
+    private void promote(Piece thePawn, int type){
+        int rank = thePawn.getRank();
+        int file = thePawn.getFile();
+        int player = thePawn.getPlayer();
+        removePiece(thePawn);
+
+        board[rank][file] = newPiece(type, rank, file, player);
+    }
+
+    /**
+     * Creates a piece, which adds itself to the lists and bitboards
+     * @param type Type of the piece (1=Rook, 2=Knight, 3=Bishop, 4=Queen, 5=King, 6=Pawn)
+     * @param rank Rank position on the Chessboard
+     * @param file File position on the Chessboard
+     * @param player Player that the piece belongs to
+     * @return - The new piece
+     */
+    private Piece newPiece(int type, int rank, int file, int player){
+        return switch (type) {
+            case 1 -> new Rook(rank, file, player, this);
+            case 2 -> new Knight(rank, file, player, this);
+            case 3 -> new Bishop(rank, file, player, this);
+            case 5 -> new King(rank, file, player, this);
+            case 6 -> new Pawn(rank, file, player, this);
+            default -> new Queen(rank, file, player, this);
+        };
     }
 
     /**
@@ -78,56 +342,68 @@ public class Chessboard extends JPanel {
      * @return - Reference to the current player's king.
      */
     public Piece getCurrentKing(){
-        return (theGame.getTurn() == 1) ? theKings[1] : theKings[0];
+        return (getTurn() == 1) ? theKings[1] : theKings[0];
     }
 
     /**
      * Constructor for the Chessboard
      * Initializes the initial position of all the pieces
      */
-    public Chessboard(Game theGame){
+    public Chessboard(){
+        this(Fen.START);
+    }
+
+    /**
+     * Constructor for the Chessboard
+     * Sets up the position written in "fen". Kings and rooks without castling rights count as moved.
+     * @param fen A position in Forsyth-Edwards Notation
+     */
+    public Chessboard(String fen){
+        Position setup = Fen.parse(fen);
         for (int i = 0; i< 8; i++){
-            if (i==0 || i==7){                                      // If i==0, player = 2. If i==7, player = 1
-                board[i][0] = new Rook(i,0,i/-7 + 2,this);
-                board[i][1] = new Knight(i,1,i/-7 + 2,this);
-                board[i][2] = new Bishop(i,2,i/-7 + 2,this);
-                board[i][3] = new Queen(i,3,i/-7 + 2,this);
-                theKings[i/7] = board[i][4] = new King(i,4,i/-7 + 2,this);
-                board[i][5] = new Bishop(i,5,i/-7 + 2,this);
-                board[i][6] = new Knight(i,6,i/-7 + 2,this);
-                board[i][7] = new Rook(i,7,i/-7 + 2,this);
-            }else{
-                for (int n = 0; n < 8; n++){
-                    if (i==1 || i == 6){                              // If i==1; player = 2. If i==6; player = 1
-                        board[i][n] = new Pawn(i,n,i % 6 + 1,this);
-                    }else{
-                        board[i][n] = new Piece(i,n,this);
-                    }
+            for (int n = 0; n < 8; n++){
+                emptySquares[i][n] = new Piece(i,n,this);
+            }
+        }
+        int rights = setup.getCastlingRights();
+        for (int square = 0; square < 64; square++){
+            int rank = Bitboards.rankOf(square);
+            int file = Bitboards.fileOf(square);
+            if (setup.pieceAt(square) == Position.NO_PIECE){
+                board[rank][file] = emptySquares[rank][file];
+                continue;
+            }
+            int player = setup.colorAt(square) + 1;
+            board[rank][file] = newPiece(setup.typeAt(square) + 1, rank, file, player);
+
+            int kingside = (player == 1) ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+            int queenside = (player == 1) ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+            if (setup.typeAt(square) == Position.KING){
+                theKings[2 - player] = board[rank][file];
+                if ((rights & (kingside | queenside)) == 0){
+                    board[rank][file].hasMoved();
                 }
+            }else if (setup.typeAt(square) == Position.ROOK && !((file == 7 && (rights & kingside) != 0) ||
+                    (file == 0 && (rights & queenside) != 0))){
+                board[rank][file].hasMoved();
             }
         }
-        this.theGame = theGame;
+
+        turn = 2 * (setup.getFullmoveNumber() - 1) + setup.getSideToMove() + 1;
+        int enPassant = setup.getEnPassantSquare();
+        if (enPassant >= 0){
+            enPassantTarget = emptySquares[Bitboards.rankOf(enPassant)][Bitboards.fileOf(enPassant)];
+            enPassantTurn = turn - 1;
+        }
+        position.setHalfmoveClock(setup.getHalfmoveClock());
+        syncState();
     }
 
     /**
-     * Creates the checkerboard pattern in the graphics
-     * @param g Graphics object from Java swing
+     * @return - The current position in Forsyth-Edwards Notation
      */
-    public void paint(Graphics g){
-
-        int xDist = theGame.getXDist();
-        int yDist = theGame.getYDist();
-
-        g.setColor(new Color(184,139,74)); // "Dark" square color
-        g.fillRect(xDist, yDist, 400, 400);
-
-        g.setColor(new Color(227,193,111)); // "Light" square color
-        for (int i = xDist; i<xDist+400; i+=100){
-            for (int j = xDist; j<xDist+400; j+=50) {
-                int increment = ((j/50) % 2 == 1) ? 50 : 0;
-                g.fillRect(i + increment, j, 50, 50);
-            }
-        }
+    public String toFen(){
+        return Fen.toString(position);
     }
 
     /**
@@ -147,13 +423,14 @@ public class Chessboard extends JPanel {
     }
 
     /**
-     * Moves the "start" piece to the "end" piece's location and
-     * replaces the start with an empty piece.
+     * Moves the "start" piece to the "end" piece's location, taking any piece there off the board
+     * and the bitboards, and replaces the start with an empty piece. Used by play for the moving
+     * piece and the castling rook; legality is tested on the Position with makeMove/unmakeMove.
      *
      * @param start The piece being moved
      * @param end The piece being moved to
      */
-    public void move(Piece start, Piece end, boolean removePiece){
+    public void move(Piece start, Piece end){
         int currentRank = start.getRank();
         int currentFile = start.getFile();
         int finalRank = end.getRank();
@@ -161,132 +438,79 @@ public class Chessboard extends JPanel {
         int newYPos = end.getYPos();
         int newXPos = end.getXPos();
 
-        //Only permanently removes piece if "removePiece" is true (called in MainTester)
-        if (isThereAPieceHere(finalRank, finalFile) && removePiece){
+        if (isThereAPieceHere(finalRank, finalFile)){
+            irreversible = true;
             removePiece(board[finalRank][finalFile]);
-        }else if (isThereAPieceHere(finalRank, finalFile)){ // Used if just testing moves under checkmate
-            removeFromList(board[finalRank][finalFile]);
         }
 
         // Updates the values on the moved piece
+        legalMoves = null;
+        irreversible |= start.getType()-1 == Position.PAWN;
+        position.movePiece(start.getPlayer()-1, start.getType()-1,
+                Bitboards.square(currentRank, currentFile), Bitboards.square(finalRank, finalFile));
         board[finalRank][finalFile] = start;
         board[finalRank][finalFile].setRank(finalRank);
         board[finalRank][finalFile].setFile(finalFile);
         board[finalRank][finalFile].setYPos(newYPos);
         board[finalRank][finalFile].setXPos(newXPos);
-        board[finalRank][finalFile].getImage().setBounds(
-                theGame.getXDist()+board[finalRank][finalFile].getXPos(),
-                theGame.getYDist()+board[finalRank][finalFile].getYPos(),50,50);
 
         // Places an empty piece at old location
-        board[currentRank][currentFile] = new Piece(currentRank,currentFile,this);
+        board[currentRank][currentFile] = emptySquares[currentRank][currentFile];
 
     }
 
     /**
-     * Checks if the current player has any legal moves by looping through all their pieces.
+     * Checks if the current player has any legal moves.
      * @return - True if there are no legal moves for the current player, false otherwise.
      */
     public boolean isCheckmate(){
-        ArrayList<Piece> list = new ArrayList<>(getCurrentPlayerPieces(true));
-
-        for (Piece piece : list) {
-            if (piece.getLegalMoves().size() > 0) {
-                return false;
-            }
-        }
-        return true;
+        return getLegalMoveCount() == 0;
     }
 
     /**
-     * This function puts a gray circle icon over all the squares on the board
-     * that "thePiece" can legally move to.
-     *
-     * @param thePiece - The piece in which to highlight its legal moves
-     */
-    public void highlightSquares(Piece thePiece){
-        ArrayList<Piece> possibleMoves = thePiece.getLegalMoves();
-
-        for (int i = 0; i < possibleMoves.size(); i++){
-            circles.add(new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/dot.png"))));
-            theGame.getFrame().add(circles.get(i));
-            circles.get(i).setBounds(theGame.getXDist()+possibleMoves.get(i).getXPos(),
-                    theGame.getYDist()+possibleMoves.get(i).getYPos(),50,50);
-            //puts the circle on top of the piece if there is a piece here
-            if (isThereAPieceHere(possibleMoves.get(i).getRank(),possibleMoves.get(i).getFile())){
-                theGame.getFrame().remove(possibleMoves.get(i).getImage());
-                theGame.getFrame().add(possibleMoves.get(i).getImage());
-                thePiece.getImage().setBounds(theGame.getXDist()+thePiece.getXPos(),
-                        theGame.getYDist()+thePiece.getYPos(),50,50);
-            }
-        }
-        theGame.getFrame().remove(this);
-        theGame.getFrame().add(this);
-        theGame.getFrame().repaint();
+     * @return - True if the position occurred twice before with the same player to move
+     */
+    public boolean isThreefoldRepetition(){
+        return position.repetitions() >= 2;
     }
 
     /**
-     * Removes any gray circles currently on the Chessboard
+     * @return - True if 50 moves of each player were played without a capture or pawn move
      */
-    public void removeCircles(){
-        for (int i = circles.size()-1; i>=0; i--){
-            theGame.getFrame().remove(circles.get(i));
-            circles.remove(i);
-        }
-        theGame.getFrame().repaint();
+    public boolean isFiftyMoveRule(){
+        return position.isFiftyMoveRule();
     }
 
-    public ArrayList<Piece> getPiecesUnderAttack(){
-        ArrayList<Piece> piecesUnderAttack = new ArrayList<>();
-
-        for (Piece playerPiece : getCurrentPlayerPieces(false)){
-            for (Piece pieceUnderAttack : playerPiece.getLegalMoves()){
-                if (!piecesUnderAttack.contains(pieceUnderAttack)){
-                    piecesUnderAttack.add(pieceUnderAttack);
-                }
-            }
-        }
-        return piecesUnderAttack;
+    /**
+     * @return - True if neither player has the pieces left to checkmate
+     */
+    public boolean isInsufficientMaterial(){
+        return position.isInsufficientMaterial();
     }
 
     /**
-     * This function puts an "x" icon over all the squares on the board which are under attack by the other player
+     * @return - The squares (pieces or empty squares) attacked by the other player's pieces
      */
-    public void underAttackSquares(){
-        for (int i = 0; i<8; i++){
-            for (int n = 0; n<8; n++){
-                if (board[i][n].underAttack()){
-                    test.add(new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/x.png"))));
-                    theGame.getFrame().add(test.get(test.size()-1));
-                    test.get(test.size()-1).setBounds(theGame.getXDist()+board[i][n].getXPos(),
-                            theGame.getYDist()+board[i][n].getYPos(),50,50);
-                }
-            }
-        }
-        theGame.getFrame().remove(this);
-        theGame.getFrame().add(this);
+    public ArrayList<Piece> getPiecesUnderAttack(){
+        return getSquares(position.getAttacked(2 - getTurn()));
     }
 
-    public void newUnderAttackSquares(){
-        for (Piece thePiece : getPiecesUnderAttack()){
-            test.add(new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/x.png"))));
-            theGame.getFrame().add(test.get(test.size()-1));
-            test.get(test.size()-1).setBounds(theGame.getXDist()+thePiece.getXPos(),
-                    theGame.getYDist()+thePiece.getYPos(),50,50);
-        }
-        theGame.getFrame().remove(this);
-        theGame.getFrame().add(this);
+    /**
+     * @param rank Rank position on the Chessboard
+     * @param file File position on the Chessboard
+     * @return Returns true if the piece belongs to current player and is not outside of boundaries
+     */
+    public boolean doesThisPieceBelongToMe(int rank, int file){
+        return !isOutsideBoundaries(rank, file) && board[rank][file].getPlayer() == getTurn();
     }
 
     /**
-     * Removes any red "x" icons over the board from the "underAttackSquares()" method
+     * @param rank Must be an integer
+     * @param file Must be an integer
+     * @return Returns true if rank or file are below 0 or above 7
      */
-    public void removeUnderAttack(){
-        for (int i = test.size()-1; i>=0; i--){
-            theGame.getFrame().remove(test.get(i));
-            test.remove(i);
-        }
-        theGame.getFrame().repaint();
+    public boolean isOutsideBoundaries(int rank, int file){
+        return rank > 7 || file > 7 || rank < 0 || file < 0;
     }
 
     /**
@@ -296,12 +520,7 @@ public class Chessboard extends JPanel {
      * @return True if there is a unique piece at the given rank and file location (or is out of bounds); otherwise false
      */
     public boolean isThereAPieceHere(int rank, int file){
-        for (Piece check : listOfPieces){
-            if (check.getRank() == rank && check.getFile() == file){
-                return true;
-            }
-        }
-        return theGame.isOutsideBoundaries(rank,file);
+        return isOutsideBoundaries(rank,file) || position.isOccupied(Bitboards.square(rank, file));
     }
 
     /**
@@ -310,35 +529,55 @@ public class Chessboard extends JPanel {
      * @param thePiece The piece being removed
      */
     public void removePiece(Piece thePiece){
-        for (int i = 0; i<listOfPieces.size(); i++){
-            if (listOfPieces.get(i) == thePiece){
-                removeFromList(thePiece);
-                theGame.getFrame().remove(listOfPieces.get(i).getImage());
-                theGame.getFrame().repaint();
-                listOfPieces.remove(i);
-                break;
-            }
+        if (thePiece.getListIndex() >= 0){
+            removeFromList(thePiece);
+            removeFromOverallList(thePiece);
         }
+    }
+
+    /**
+     * Adds a newly created piece to the ArrayLists and the bitboards.
+     * @param thePiece Piece to be added
+     */
+    public void addPiece(Piece thePiece){
+        addToList(thePiece);
+        thePiece.setListIndex(listOfPieces.size());
+        listOfPieces.add(thePiece);
+    }
 
+    /**
+     * Adds the designated piece back to its player's ArrayList and to the bitboards.
+     * @param thePiece Piece to be added
+     */
+    public void addToList(Piece thePiece){
+        ArrayList<Piece> list = (thePiece.getPlayer() == 1) ? listOfWhitePieces : listOfBlackPieces;
+        thePiece.setPlayerListIndex(list.size());
+        list.add(thePiece);
+        legalMoves = null;
+        position.addPiece(thePiece.getPlayer()-1, thePiece.getType()-1,
+                Bitboards.square(thePiece.getRank(), thePiece.getFile()));
     }
 
     /**
-     * Removes the designated piece from ArrayLists.
+     * Removes the designated piece from ArrayLists and the bitboards. The last piece in the list
+     * takes its place, so nothing is shifted or searched for.
      * @param thePiece Piece to be removed
      */
     public void removeFromList(Piece thePiece){
-        for (int i = 0; i < listOfWhitePieces.size(); i++){
-            if (listOfWhitePieces.get(i) == thePiece){
-                listOfWhitePieces.remove(i);
-                break;
-            }
+        int index = thePiece.getPlayerListIndex();
+        if (index < 0){
+            return;
         }
-        for (int i = 0; i < listOfBlackPieces.size(); i++){
-            if (listOfBlackPieces.get(i) == thePiece){
-                listOfBlackPieces.remove(i);
-                break;
-            }
+        ArrayList<Piece> list = (thePiece.getPlayer() == 1) ? listOfWhitePieces : listOfBlackPieces;
+        Piece last = list.remove(list.size()-1);
+        if (last != thePiece){
+            list.set(index, last);
+            last.setPlayerListIndex(index);
         }
+        thePiece.setPlayerListIndex(-1);
+        legalMoves = null;
+        position.removePiece(thePiece.getPlayer()-1, thePiece.getType()-1,
+                Bitboards.square(thePiece.getRank(), thePiece.getFile()));
     }
 
     /**
@@ -346,11 +585,15 @@ public class Chessboard extends JPanel {
      * @param thePiece The piece to be removed
      */
     public void removeFromOverallList(Piece thePiece){
-        for (int i = 0; i < listOfPieces.size(); i++){
-            if (listOfPieces.get(i) == thePiece){
-                listOfPieces.remove(i);
-                break;
-            }
+        int index = thePiece.getListIndex();
+        if (index < 0){
+            return;
+        }
+        Piece last = listOfPieces.remove(listOfPieces.size()-1);
+        if (last != thePiece){
+            listOfPieces.set(index, last);
+            last.setListIndex(index);
         }
+        thePiece.setListIndex(-1);
     }
 }
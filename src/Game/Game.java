@@ -1,9 +1,13 @@
 package Game;
 
+import Engine.*;
 import Pieces.*;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -12,7 +16,7 @@ public class Game extends MouseAdapter implements ActionListener {
     /**
      * GUI Variables
      */
-    private final Chessboard theChessboard = new Chessboard(this);
+    private final Chessboard theChessboard = new Chessboard();
     private final Piece[][] board = theChessboard.getBoard();
     private final JFrame frame = new JFrame("Basic Chess Game - by Jacky Gao");
     private final JLabel displayText = new JLabel("Current Turn: Player 1");
@@ -23,31 +27,27 @@ public class Game extends MouseAdapter implements ActionListener {
      * Initial variables used throughout the class
      * meant to be changed
      */
-    private int turn = 1;
     private int startRankIndex = 4;
     private int startFileIndex = 0;
     private int endRankIndex = 4;
     private int endFileIndex = 0;
+    private int promotionMove = Move.NONE;  // Promotion waiting for the player to choose the new piece
     private final int xDist = 100;
     private final int yDist = 100;
+    private final BoardView view = new BoardView(theChessboard, frame, xDist, yDist);
 
     /**
-     * Variables used in promotions
+     * Engine settings, used when playing against the engine. The engine and the book are only
+     * created for a game against the engine, and the engine is closed with the window.
      */
-    private boolean inPromotion = false;
-    private Piece promotionPiece;
-
-    /**
-     * @return - The current player turn
-     **/
-    public int getTurn(){ return (turn % 2 == 1) ? 1 : 2; }
-
-    /**
-     * @return - The total number of turns
-     */
-    public int getTotalTurns(){
-        return turn;
-    }
+    private final boolean vsEngine;
+    private final int enginePlayer = 2;
+    private final long engineMillis = 1000;
+    private final int engineThreads = Runtime.getRuntime().availableProcessors();
+    private final int engineMegabytes = 32;
+    private final Tablebase tablebase = openTablebase(Path.of("tablebases"));  // null if there are no tables
+    private final ParallelSearch engine;    // null in a game between two players
+    private final OpeningBook book;         // null in a game between two players or if there is no book file
 
     /**
      * @return - Frame holding everything from Java Swing
@@ -65,20 +65,38 @@ public class Game extends MouseAdapter implements ActionListener {
     public int getYDist(){return yDist;}
 
     /**
-     * Constructor - sets initial settings of the board
+     * Constructor - sets initial settings of the board for two players
      */
     public Game(){
+        this(false);
+    }
+
+    /**
+     * Constructor - sets initial settings of the board
+     * @param vsEngine True to play White against the engine, false for two players
+     */
+    public Game(boolean vsEngine){
+        this.vsEngine = vsEngine;
+        this.engine = vsEngine ? new ParallelSearch(new TranspositionTable(engineMegabytes), tablebase, engineThreads) : null;
+        this.book = vsEngine ? openBook(Path.of("book.bin")) : null;
+
         // Initial setup of JFrame
         frame.setSize(600, 650);
         frame.setLocationRelativeTo(null);
         frame.setBackground(Color.LIGHT_GRAY);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        if (engine != null){
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e){
+                    engine.stop();
+                    engine.close();
+                }
+            });
+        }
 
         // Adding the images of the pieces to the frame
-        for (Piece thePiece : theChessboard.getList()){
-            frame.add(thePiece.getImage());
-            thePiece.getImage().setBounds(xDist+thePiece.getXPos(),yDist+thePiece.getYPos(),50,50);
-        }
+        view.sync();
 
         // Set location of display text above the board
         displayText.setBounds(xDist, yDist-50, 300,50);
@@ -109,12 +127,15 @@ public class Game extends MouseAdapter implements ActionListener {
         frame.addMouseListener(this);
 
         // Adds the Chessboard to the frame
-        frame.add(theChessboard);
+        frame.add(view);
         frame.setVisible(true);
     }
 
     public static void main(String[] args) {
-        new Game();
+        String[] modes = {"Two players", "Play vs engine"};
+        int mode = JOptionPane.showOptionDialog(null, "Choose a game mode", "Basic Chess Game",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
+        new Game(mode == 1);
     }
 
     /**
@@ -127,140 +148,196 @@ public class Game extends MouseAdapter implements ActionListener {
     public void mouseClicked(MouseEvent e){
         int rankIndex = (e.getY()- yDist-30)/50;
         int fileIndex = (e.getX()- xDist)/50;
-        if (isOutsideBoundaries(rankIndex,fileIndex)){ return; } // exits if mouse click is outside the chessboard
+        if (theChessboard.isOutsideBoundaries(rankIndex,fileIndex)){ return; } // exits if mouse click is outside the chessboard
         boolean firstSelection = false;
 
         // If user selects their piece, make it their first selection
-        if (doesThisPieceBelongToMe(rankIndex, fileIndex)){
-            theChessboard.removeCircles();
-            //theChessboard.removeUnderAttack(); //testing
+        if (theChessboard.doesThisPieceBelongToMe(rankIndex, fileIndex)){
+            view.removeCircles();
+            //view.removeUnderAttack(); //testing
             startRankIndex = rankIndex;
             startFileIndex = fileIndex;
             firstSelection = true;
-            theChessboard.highlightSquares(board[startRankIndex][startFileIndex]);
-            //theChessboard.newUnderAttackSquares(); //testing
+            view.highlightSquares(board[startRankIndex][startFileIndex]);
+            //view.newUnderAttackSquares(); //testing
         }else{ // second selection
             endRankIndex = rankIndex;
             endFileIndex = fileIndex;
         }
 
         // Moves the piece if the user makes a legal move
-        if (!firstSelection && board[startRankIndex][startFileIndex].canMove(
-                board[endRankIndex][endFileIndex])){
-            theChessboard.removeCircles();
-            //theChessboard.removeUnderAttack(); //testing
-            board[startRankIndex][startFileIndex].hasMoved();
-            if (inPromotion){
+        int move = firstSelection ? Move.NONE : board[startRankIndex][startFileIndex].getMove(
+                board[endRankIndex][endFileIndex]);
+        if (move != Move.NONE){
+            view.removeCircles();
+            //view.removeUnderAttack(); //testing
+            if (Move.isPromotion(move)){
+                promotionMove = move;
+                startPromotion();
                 displayText.setText("Please choose a promotion for your pawn.");
                 frame.removeMouseListener(this);
-                frame.repaint();
                 return;
             }
-            theChessboard.move(board[startRankIndex][startFileIndex], board[endRankIndex][endFileIndex],true);
-            turn++;
-            displayText.setText("Current Turn: Player "+getTurn());
-            frame.repaint();
+            theChessboard.play(move);
+            endTurn();
         }
+    }
 
+    /**
+     * Updates the display after a move and lets the engine reply if it is its turn
+     */
+    private void endTurn(){
+        displayText.setText("Current Turn: Player "+theChessboard.getTurn()+tablebaseResult());
+        view.sync();
+        if (!isGameOver() && vsEngine && theChessboard.getTurn() == enginePlayer){
+            startEngine();
+        }
+    }
+
+    /**
+     * Searches for the engine's move on a background thread (and its helper threads, one per core)
+     * so the window stays responsive, then plays it on the event dispatch thread. The player can't click while the engine thinks.
+     */
+    private void startEngine(){
+        frame.removeMouseListener(this);
+        displayText.setText("The engine is thinking...");
+        Position position = new Position(theChessboard.getPosition());
+        Thread thread = new Thread(() -> {
+            int move = engineMove(position);
+            SwingUtilities.invokeLater(() -> {
+                theChessboard.play(move);
+                frame.addMouseListener(this);
+                endTurn();
+            });
+        }, "Engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @param position The position the engine is to move in
+     * @return - A move from the opening book, or the best move found by the search if the position isn't in it
+     */
+    private int engineMove(Position position){
+        int move = (book != null) ? book.probe(position, new int[MoveGenerator.MAX_MOVES]) : Move.NONE;
+        return (move != Move.NONE) ? move : engine.search(position, Search.MAX_PLY, engineMillis, 0).getBestMove();
+    }
+
+    /**
+     * @param file The book file
+     * @return - The opening book in "file", or null if there is none or it can't be read
+     */
+    private static OpeningBook openBook(Path file){
+        if (!Files.exists(file)){
+            return null;
+        }
+        try {
+            return new OpeningBook(file);
+        }catch (IOException e){
+            System.err.println("Opening book not used: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param directory The directory of the table files
+     * @return - The endgame tables in "directory", or null if there are none or they can't be read
+     */
+    private static Tablebase openTablebase(Path directory){
+        if (!Files.isDirectory(directory)){
+            return null;
+        }
+        try {
+            return new Tablebase(directory);
+        }catch (IOException e){
+            System.err.println("Endgame tables not used: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return - What the endgame tables say of the current position, such as " (mates in 12)", or
+     *           an empty string if it isn't in them
+     */
+    private String tablebaseResult(){
+        int score = (tablebase != null) ? tablebase.probe(theChessboard.getPosition()) : Tablebase.UNKNOWN;
+        if (score == Tablebase.UNKNOWN){
+            return "";
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return (score == 0) ? " (drawn)" : (score > 0) ? " (mates in "+(plies+1)/2+")" : " (mated in "+plies/2+")";
+    }
+
+    /**
+     * Ends the game if the current player is checkmated or has no legal moves
+     * @return - True if the game is over
+     */
+    private boolean isGameOver(){
         // Ends the game - Checkmate
         if (theChessboard.getCurrentKing().underAttack() && theChessboard.isCheckmate()){
             JLabel death = new JLabel(new ImageIcon(ClassLoader.getSystemResource("Images/x.png")));
             frame.add(death);
             death.setBounds(xDist+theChessboard.getCurrentKing().getXPos(),
                     xDist+theChessboard.getCurrentKing().getYPos(),50,50);
-            frame.remove(theChessboard);
-            frame.add(theChessboard);
-            turn--;
-            displayText.setText("Checkmate. Player "+getTurn()+" wins!");
+            frame.remove(view);
+            frame.add(view);
+            displayText.setText("Checkmate. Player "+(theChessboard.getTurn() == 1 ? 2 : 1)+" wins!");
             frame.removeMouseListener(this);
-        }else if (theChessboard.isCheckmate() || theChessboard.getList().size() == 2){ // Stalemate
+            return true;
+        }else if (theChessboard.isCheckmate()){ // Stalemate
             displayText.setText("Stalemate! Draw.");
             frame.removeMouseListener(this);
+            return true;
+        }else if (theChessboard.isThreefoldRepetition() || theChessboard.isFiftyMoveRule() ||
+                theChessboard.isInsufficientMaterial()){
+            displayText.setText((theChessboard.isThreefoldRepetition() ? "Threefold repetition" :
+                    theChessboard.isFiftyMoveRule() ? "Fifty moves without a capture or pawn move" :
+                    "Not enough pieces to checkmate") + "! Draw.");
+            frame.removeMouseListener(this);
+            return true;
         }
+        return false;
     }
 
     /**
      * This function will be called when the user hits a button choosing a pawn promotion.
-     * This function will promote "promotionPiece" to the designated button choice.
-     * Post-condition: "promotionPiece" will be promoted to either Rook, Knight, Bishop, or Queen
+     * This function will play the waiting promotion with the piece of the designated button choice.
+     * Post-condition: the pawn will be promoted to either Rook, Knight, Bishop, or Queen
      *
      * @param e ActionEvent
      */
     @Override
     public void actionPerformed(ActionEvent e) {
 
-        int currentRank = promotionPiece.getRank();
-        int currentFile = promotionPiece.getFile();
-        theChessboard.removePiece(promotionPiece);
-
         // Changes the piece to option chosen
-        switch(((JButton)e.getSource()).getText()){
-            case "Rook":
-                board[currentRank][currentFile] = new Rook(currentRank,currentFile, getTurn(), theChessboard);
-                break;
-            case "Knight":
-                board[currentRank][currentFile] = new Knight(currentRank,currentFile, getTurn(), theChessboard);
-                break;
-            case "Bishop":
-                board[currentRank][currentFile] = new Bishop(currentRank,currentFile, getTurn(), theChessboard);
-                break;
-            case "Queen":
-                board[currentRank][currentFile] = new Queen(currentRank,currentFile, getTurn(), theChessboard);
-                break;
-            default:
-                break;
-        }
-
-        // Updating the image
-        frame.add(board[currentRank][currentFile].getImage());
-        board[currentRank][currentFile].getImage().setBounds(board[currentRank][currentFile].getXPos(),
-                board[currentRank][currentFile].getYPos(),50,50);
-        frame.remove(theChessboard);
-        frame.add(theChessboard);
+        int type = switch (((JButton)e.getSource()).getText()) {
+            case "Rook" -> Position.ROOK;
+            case "Knight" -> Position.KNIGHT;
+            case "Bishop" -> Position.BISHOP;
+            default -> Position.QUEEN;
+        };
+        int move = Move.of(Move.from(promotionMove), Move.to(promotionMove),
+                (Move.flags(promotionMove) & ~3) | type);
 
         // Reset settings back to regular gameplay
         frame.addMouseListener(this);
-        inPromotion = false;
-        promotionPiece = null;
         for (int i = 0; i<4; i++){
             frame.remove(promotionButtons.get(i));
         }
-        theChessboard.move(board[startRankIndex][startFileIndex], board[endRankIndex][endFileIndex],true);
-        turn++;
-        displayText.setText("Current Turn: Player "+getTurn());
-        frame.repaint();
+        promotionMove = Move.NONE;
+        theChessboard.play(move);
+        endTurn();
     }
 
     /**
-     * This function initiates the process of promoting "thePawn"
-     * @param thePawn The pawn being promoted
+     * This function shows the promotion buttons for the pawn waiting to be promoted
      */
-    public void startPromotion(Piece thePawn){
-        inPromotion = true;
-        promotionPiece = thePawn;
+    public void startPromotion(){
         for (int i = 0; i<4; i++){
             frame.add(promotionButtons.get(i));
         }
-        frame.remove(theChessboard);
-        frame.add(theChessboard);
+        frame.remove(view);
+        frame.add(view);
         frame.repaint();
     }
-
-    /**
-     * @param rank Rank position on the Chessboard
-     * @param file File position on the Chessboard
-     * @return Returns true if the piece belongs to current player and is not outside of boundaries
-     */
-    public boolean doesThisPieceBelongToMe(int rank, int file){
-        return !isOutsideBoundaries(rank, file) && board[rank][file].getPlayer() == getTurn();
-    }
-
-    /**
-     * @param rank Must be an integer
-     * @param file Must be an integer
-     * @return Returns true if rank or file are below 0 or above 7
-     */
-    public boolean isOutsideBoundaries(int rank, int file){
-        return rank > 7 || file > 7 || rank < 0 || file < 0;
-    }
 }
@@ -0,0 +1,326 @@
+package Game;
+
+import Engine.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays the engine against itself with two sets of search limits, many games at once, and reports
+ * the Elo difference between them.
+ *
+ * Every game is played on a Chessboard of its own by one thread, so games don't share anything but
+ * the tablebase. Every thread keeps one Position, Search and transposition table for each side and
+ * one pawn table, set up again before every move and cleared before every game instead of being
+ * allocated; the Chessboard of each game, its legal move lists and the move text still are. Each
+ * opening is played twice with the colors swapped. A game ends by the rules (mate, stalemate, repetition, fifty moves,
+ * insufficient material) or is adjudicated: won once both sides' scores agree on at least
+ * RESIGN_SCORE for RESIGN_PLIES plies in a row, drawn once they stay within DRAW_SCORE for DRAW_PLIES
+ * plies after DRAW_FROM_PLY, or drawn after MAX_PLIES. Positions in the endgame tables are
+ * adjudicated by them.
+ *
+ * Usage: java Game.Match [games] [threads] [limitsA] [limitsB] [openings.epd|-] [match.pgn]
+ * where the limits are comma-separated depth=N, nodes=N and millis=N, such as "nodes=20000".
+ * Openings are FEN or EPD lines; "-" or no file uses a built-in set.
+ */
+public class Match {
+
+    private static final int RESIGN_SCORE = 1000;
+    private static final int RESIGN_PLIES = 4;
+    private static final int DRAW_SCORE = 10;
+    private static final int DRAW_PLIES = 8;
+    private static final int DRAW_FROM_PLY = 80;
+    private static final int MAX_PLIES = 400;
+    private static final int TABLE_MEGABYTES = 8;
+
+    /**
+     * Openings played when no file is given, as moves from the starting position
+     */
+    private static final String[] OPENINGS = {
+            "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6", "e2e4 e7e5 g1f3 b8c6 f1c4 f8c5", "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4",
+            "e2e4 c7c5 b1c3 b8c6 g2g3 g7g6", "e2e4 e7e6 d2d4 d7d5 b1c3 g8f6", "e2e4 c7c6 d2d4 d7d5 e4e5 c8f5",
+            "d2d4 d7d5 c2c4 e7e6 b1c3 g8f6", "d2d4 d7d5 c2c4 c7c6 g1f3 g8f6", "d2d4 g8f6 c2c4 g7g6 b1c3 f8g7",
+            "d2d4 g8f6 c2c4 e7e6 b1c3 f8b4", "c2c4 e7e5 b1c3 g8f6 g2g3 d7d5", "g1f3 d7d5 g2g3 g8f6 f1g2 c7c6",
+    };
+
+    /**
+     * Results, from White's side
+     */
+    private static final int WHITE_WINS = 1;
+    private static final int DRAW = 0;
+    private static final int BLACK_WINS = -1;
+
+    /**
+     * Search limits of one side
+     */
+    private record Limits(int depth, long millis, long nodes, String text){
+        static Limits parse(String text){
+            int depth = Search.MAX_PLY;
+            long millis = 0;
+            long nodes = 0;
+            for (String limit : text.split(",")){
+                String[] parts = limit.split("=");
+                if (parts.length != 2){
+                    throw new IllegalArgumentException("Not a limit: " + limit);
+                }
+                switch (parts[0]){
+                    case "depth" -> depth = Integer.parseInt(parts[1]);
+                    case "millis" -> millis = Long.parseLong(parts[1]);
+                    case "nodes" -> nodes = Long.parseLong(parts[1]);
+                    default -> throw new IllegalArgumentException("Not a limit: " + limit);
+                }
+            }
+            if (depth == Search.MAX_PLY && millis == 0 && nodes == 0){
+                throw new IllegalArgumentException("No limit in " + text);
+            }
+            return new Limits(depth, millis, nodes, text);
+        }
+    }
+
+    /**
+     * A finished game: its result for White and the game in PGN
+     */
+    private record Played(int result, boolean engineAWhite, String pgn){}
+
+    private final Limits[] limits;
+    private final Tablebase tablebase;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * Constructor
+     * @param a Search limits of the first engine
+     * @param b Search limits of the second engine
+     * @param tablebase Endgame tables used by both engines and for adjudication, or null for none
+     */
+    private Match(Limits a, Limits b, Tablebase tablebase){
+        this.limits = new Limits[]{a, b};
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Plays one game from an opening
+     *
+     * @param opening FEN of the starting position
+     * @param engineAWhite Whether the first engine plays White
+     * @param round Number of the game, for the PGN
+     * @return - The result and PGN of the game
+     */
+    private Played play(String opening, boolean engineAWhite, int round){
+        Chessboard theChessboard = new Chessboard(opening);
+        Worker worker = workers.get();
+        worker.tables[0].clear();
+        worker.tables[1].clear();
+        StringBuilder movetext = new StringBuilder();
+        int resignPlies = 0;
+        int drawPlies = 0;
+        int lastSign = 0;
+        int plies = 0;
+        int result;
+        String termination;
+
+        while (true){
+            Position position = theChessboard.getPosition();
+            int side = position.getSideToMove();
+            if (theChessboard.isCheckmate()){
+                boolean mate = theChessboard.getCurrentKing().underAttack();
+                result = !mate ? DRAW : (side == Position.WHITE) ? BLACK_WINS : WHITE_WINS;
+                termination = mate ? "checkmate" : "stalemate";
+                break;
+            }else if (theChessboard.isThreefoldRepetition() || theChessboard.isFiftyMoveRule() ||
+                    theChessboard.isInsufficientMaterial()){
+                result = DRAW;
+                termination = theChessboard.isThreefoldRepetition() ? "threefold repetition" :
+                        theChessboard.isFiftyMoveRule() ? "fifty-move rule" : "insufficient material";
+                break;
+            }else if (plies >= MAX_PLIES){
+                result = DRAW;
+                termination = "adjudicated draw by length";
+                break;
+            }
+            int tablebaseScore = (tablebase != null) ? tablebase.probe(position) : Tablebase.UNKNOWN;
+            if (tablebaseScore != Tablebase.UNKNOWN){
+                int sign = Integer.signum(tablebaseScore) * ((side == Position.WHITE) ? 1 : -1);
+                result = sign;
+                termination = "adjudicated by tablebase";
+                break;
+            }
+
+            // The side to move searches its copy, which is restored afterwards and used to write the move
+            int player = ((side == Position.WHITE) == engineAWhite) ? 0 : 1;
+            Position copy = worker.positions[player];
+            copy.copyFrom(position);
+            Search search = worker.searches[player];
+            Limits limit = limits[player];
+            int move = search.search(limit.depth(), limit.millis(), limit.nodes());
+            if (side == Position.WHITE){
+                movetext.append(position.getFullmoveNumber()).append(". ");
+            }else if (plies == 0){
+                movetext.append(position.getFullmoveNumber()).append("... ");
+            }
+            movetext.append(San.toString(copy, move, worker.moves)).append(' ');
+            theChessboard.play(move);
+            plies++;
+
+            // Adjudication by the scores of both sides, seen from White
+            int score = (side == Position.WHITE) ? search.getScore() : -search.getScore();
+            int sign = Integer.signum(score);
+            resignPlies = (Math.abs(score) >= RESIGN_SCORE && sign == lastSign) ? resignPlies + 1 :
+                    (Math.abs(score) >= RESIGN_SCORE) ? 1 : 0;
+            lastSign = sign;
+            drawPlies = (Math.abs(score) <= DRAW_SCORE) ? drawPlies + 1 : 0;
+            if (resignPlies >= RESIGN_PLIES){
+                result = sign;
+                termination = "adjudicated win";
+                break;
+            }else if (drawPlies >= DRAW_PLIES && plies >= DRAW_FROM_PLY){
+                result = DRAW;
+                termination = "adjudicated draw";
+                break;
+            }
+        }
+
+        String resultText = (result == WHITE_WINS) ? "1-0" : (result == BLACK_WINS) ? "0-1" : "1/2-1/2";
+        String white = engineAWhite ? "A " + limits[0].text() : "B " + limits[1].text();
+        String black = engineAWhite ? "B " + limits[1].text() : "A " + limits[0].text();
+        StringBuilder pgn = new StringBuilder(movetext.length() + 300);
+        pgn.append("[Event \"Match\"]\n[Site \"?\"]\n[Date \"")
+                .append(LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"))).append("\"]\n")
+                .append("[Round \"").append(round).append("\"]\n")
+                .append("[White \"").append(white).append("\"]\n[Black \"").append(black).append("\"]\n")
+                .append("[Result \"").append(resultText).append("\"]\n");
+        if (!opening.equals(Fen.START)){
+            pgn.append("[SetUp \"1\"]\n[FEN \"").append(opening).append("\"]\n");
+        }
+        pgn.append("[PlyCount \"").append(plies).append("\"]\n[Termination \"").append(termination).append("\"]\n\n")
+                .append(movetext).append(resultText).append("\n\n");
+        return new Played(result, engineAWhite, pgn.toString());
+    }
+
+    /**
+     * What one thread reuses from game to game: a position, search and transposition table for each
+     * side, and a pawn table, which both sides can share as its scores don't depend on the search
+     */
+    private final class Worker {
+        private final TranspositionTable[] tables = {new TranspositionTable(TABLE_MEGABYTES),
+                new TranspositionTable(TABLE_MEGABYTES)};
+        private final PawnTable pawnTable = new PawnTable(PawnTable.DEFAULT_MEGABYTES);
+        private final Position[] positions = {new Position(), new Position()};
+        private final Search[] searches = {new Search(positions[0], tables[0], tablebase, pawnTable),
+                new Search(positions[1], tables[1], tablebase, pawnTable)};
+        private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    }
+
+    /**
+     * @return - The starting positions of the built-in openings
+     */
+    private static List<String> builtInOpenings(){
+        List<String> openings = new ArrayList<>();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String line : OPENINGS){
+            Position position = Fen.parse(Fen.START);
+            for (String text : line.split(" ")){
+                int count = MoveGenerator.generateLegal(position, moves, 0);
+                for (int i = 0; i < count; i++){
+                    if (Move.toString(moves[i]).equals(text)){
+                        position.makeMove(moves[i]);
+                        break;
+                    }
+                }
+            }
+            openings.add(Fen.toString(position));
+        }
+        return openings;
+    }
+
+    /**
+     * @param score Share of the points scored, strictly between 0 and 1
+     * @return - The Elo difference which gives that expected score
+     */
+    private static double elo(double score){
+        return -400 * Math.log10(1 / score - 1) + 0.0;    // + 0.0 turns -0.0 into 0.0
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Limits a = Limits.parse((args.length > 2) ? args[2] : "nodes=20000");
+        Limits b = Limits.parse((args.length > 3) ? args[3] : "nodes=10000");
+        List<String> openings = new ArrayList<>();
+        if (args.length > 4 && !args[4].equals("-")){
+            for (String line : Files.readAllLines(Path.of(args[4]), StandardCharsets.UTF_8)){
+                if (!line.isBlank() && !line.startsWith("#")){
+                    openings.add(Fen.toString(Fen.parse(line.trim())));
+                }
+            }
+        }else{
+            openings = builtInOpenings();
+        }
+        Writer pgn = (args.length > 5) ? Files.newBufferedWriter(Path.of(args[5]), StandardCharsets.UTF_8) : null;
+        Tablebase tablebase = Files.isDirectory(Path.of("tablebases")) ? new Tablebase(Path.of("tablebases")) : null;
+
+        Match match = new Match(a, b, tablebase);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Match game");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Played>> running = new ArrayList<>(games);
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++){
+            String opening = openings.get(i / 2 % openings.size());
+            boolean engineAWhite = i % 2 == 0;
+            int round = i + 1;
+            running.add(workers.submit(() -> match.play(opening, engineAWhite, round)));
+        }
+
+        // Results of engine A, in the order the games were started
+        int wins = 0;
+        int draws = 0;
+        int losses = 0;
+        try (Writer out = (pgn != null) ? new BufferedWriter(pgn) : Writer.nullWriter()){
+            for (int i = 0; i < games; i++){
+                Played game;
+                try {
+                    game = running.get(i).get();
+                }catch (Exception e){
+                    throw new IllegalStateException("Game " + (i + 1) + " failed", e.getCause() != null ? e.getCause() : e);
+                }
+                int forA = game.engineAWhite() ? game.result() : -game.result();
+                wins += (forA > 0) ? 1 : 0;
+                draws += (forA == 0) ? 1 : 0;
+                losses += (forA < 0) ? 1 : 0;
+                out.write(game.pgn());
+                if ((i + 1) % Math.max(1, games / 10) == 0 || i + 1 == games){
+                    System.out.printf("%,d games: +%d =%d -%d%n", i + 1, wins, draws, losses);
+                }
+            }
+        }finally {
+            workers.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Elo difference with a 95% confidence interval, from the variance of the per-game scores
+        double score = (wins + draws / 2.0) / games;
+        double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2) +
+                losses * Math.pow(score, 2)) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        System.out.printf("A (%s) vs B (%s): +%d =%d -%d, score %.1f%%%n", a.text(), b.text(), wins, draws, losses, score * 100);
+        if (score > 0 && score < 1){
+            System.out.printf("Elo difference: %.1f +/- %.1f (95%%)%n", elo(score),
+                    (elo(Math.min(score + margin, 0.999)) - elo(Math.max(score - margin, 0.001))) / 2);
+        }else{
+            System.out.println("Elo difference: unbounded, one engine scored every point");
+        }
+        System.out.printf("%,d games on %d threads in %.1f s: %.2f games/s%n", games, threads, seconds, games / seconds);
+    }
+}
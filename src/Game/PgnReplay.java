@@ -0,0 +1,92 @@
+package Game;
+
+import Engine.*;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays the games of a PGN file through the Chessboard, checking that every move the Pgn reader
+ * resolved is legal on the Chessboard too and that both end up in the same position.
+ *
+ * Usage: java Game.PgnReplay file.pgn [threads]
+ */
+public class PgnReplay implements Pgn.Listener {
+
+    private static final int MAX_REPORTED = 10; // Invalid games printed before only counting them
+
+    private final AtomicLong moves;
+    private final AtomicLong invalid;
+    private Chessboard theChessboard;
+    private long gameMoves;     // Moves of the current game, added to "moves" when it ends
+
+    /**
+     * Constructor
+     * @param moves Counter of the moves replayed, shared by the threads
+     * @param invalid Counter of the invalid games, shared by the threads
+     */
+    public PgnReplay(AtomicLong moves, AtomicLong invalid){
+        this.moves = moves;
+        this.invalid = invalid;
+    }
+
+    @Override
+    public void startGame(Position position){
+        gameMoves = 0;
+        theChessboard = new Chessboard(Fen.toString(position));
+    }
+
+    @Override
+    public void move(Position position, int move){
+        if (theChessboard.getKey() != position.getKey()){
+            throw new IllegalStateException("Chessboard and reader differ before " + Move.toString(move) + " in " +
+                    Fen.toString(position) + ": " + theChessboard.toFen());
+        }
+        theChessboard.play(move);
+        gameMoves++;
+    }
+
+    @Override
+    public void endGame(String result){
+        moves.addAndGet(gameMoves);
+        gameMoves = 0;
+    }
+
+    @Override
+    public void invalidGame(String reason){
+        moves.addAndGet(gameMoves);
+        gameMoves = 0;
+        if (invalid.incrementAndGet() <= MAX_REPORTED){
+            System.err.println("Invalid game: " + reason);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0){
+            System.err.println("Usage: java Game.PgnReplay file.pgn [threads]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]);
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        AtomicLong moves = new AtomicLong();
+        AtomicLong invalid = new AtomicLong();
+
+        long start = System.nanoTime();
+        long games;
+        if (threads > 1){
+            games = Pgn.readParallel(file, threads, () -> new PgnReplay(moves, invalid));
+        }else{
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+                games = new Pgn(channel, new PgnReplay(moves, invalid)).read();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d games (%,d invalid), %,d moves in %.2f s: %,.0f games/s, %,.0f moves/s%n", games,
+                invalid.get(), moves.get(), seconds, games / seconds, moves.get() / seconds);
+        if (invalid.get() > 0){
+            System.exit(1);
+        }
+    }
+}
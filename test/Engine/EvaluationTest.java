@@ -0,0 +1,124 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the evaluation at every node of a shallow perft from the standard test positions: it
+ * scores a position and its color mirror the same for the side to move, the incrementally updated
+ * square scores and phase match those worked out from scratch, and a pawn table gives the same
+ * pawn structure scores as working them out.
+ */
+class EvaluationTest {
+
+    private static final int DEPTH = 2;
+
+    @Test
+    void scoresTheColorMirrorTheSame(){
+        walk((position, pawnTable) -> {
+            String fen = Fen.toString(position);
+            Position mirrored = Fen.parse(mirror(fen));
+            assertEquals(Evaluation.evaluate(position), Evaluation.evaluate(mirrored), fen);
+            assertEquals(-Evaluation.pawnStructure(position), Evaluation.pawnStructure(mirrored), fen);
+        });
+    }
+
+    @Test
+    void incrementalScoresMatchAFreshPosition(){
+        walk((position, pawnTable) -> {
+            String fen = Fen.toString(position);
+            int pieceScore = 0;
+            int phase = 0;
+            for (int square = 0; square < 64; square++){
+                int piece = position.pieceAt(square);
+                if (piece != Position.NO_PIECE){
+                    pieceScore += Evaluation.PIECE_SCORES[piece][square];
+                    phase += Evaluation.PHASE[piece % 6];
+                }
+            }
+            assertEquals(pieceScore, position.getPieceScore(), fen);
+            assertEquals(phase, position.getPhase(), fen);
+            assertEquals(Evaluation.evaluate(Fen.parse(fen)), Evaluation.evaluate(position), fen);
+        });
+    }
+
+    @Test
+    void pawnTableGivesTheWorkedOutScore(){
+        walk((position, pawnTable) -> {
+            String fen = Fen.toString(position);
+            assertEquals(Evaluation.pawnStructure(position), pawnTable.probe(position), fen);
+            assertEquals(Evaluation.evaluate(position), Evaluation.evaluate(position, pawnTable), fen);
+        });
+
+        // The second probe of a position is a hit with the same score
+        PawnTable pawnTable = new PawnTable(1);
+        Position position = Fen.parse(Perft.SUITE[1][1]);
+        int score = pawnTable.probe(position);
+        assertEquals(0, pawnTable.getHitRate());
+        assertEquals(score, pawnTable.probe(position));
+        assertEquals(0.5, pawnTable.getHitRate());
+    }
+
+    private interface Check {
+        void check(Position position, PawnTable pawnTable);
+    }
+
+    /**
+     * Runs "check" on every position up to DEPTH plies from the test positions, after makeMove
+     * and again after unmakeMove. The pawn table is the smallest, so its entries are replaced often.
+     */
+    private static void walk(Check check){
+        PawnTable pawnTable = new PawnTable(0);
+        int[][] lists = new int[DEPTH][MoveGenerator.MAX_MOVES];
+        for (String[] test : Perft.SUITE){
+            Position position = Fen.parse(test[1]);
+            check.check(position, pawnTable);
+            walk(position, DEPTH, lists, check, pawnTable);
+        }
+    }
+
+    private static void walk(Position position, int depth, int[][] lists, Check check, PawnTable pawnTable){
+        int[] list = lists[depth - 1];
+        int count = MoveGenerator.generateLegal(position, list, 0);
+        for (int i = 0; i < count; i++){
+            position.makeMove(list[i]);
+            check.check(position, pawnTable);
+            if (depth > 1){
+                walk(position, depth - 1, lists, check, pawnTable);
+            }
+            position.unmakeMove(list[i]);
+            check.check(position, pawnTable);
+        }
+    }
+
+    /**
+     * @return - "fen" with the board turned around and the colors, side to move, castling rights
+     *           and en passant square swapped
+     */
+    private static String mirror(String fen){
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int rank = ranks.length - 1; rank >= 0; rank--){
+            placement.append(swapCase(ranks[rank])).append(rank > 0 ? "/" : "");
+        }
+        StringBuilder castling = new StringBuilder();
+        for (char right : "KQkq".toCharArray()){
+            if (fields[2].indexOf(Character.isUpperCase(right) ? Character.toLowerCase(right) : Character.toUpperCase(right)) >= 0){
+                castling.append(right);
+            }
+        }
+        String enPassant = fields[3].equals("-") ? "-" : fields[3].charAt(0) + String.valueOf((char)('9' - fields[3].charAt(1) + '0'));
+        return placement + (fields[1].equals("w") ? " b " : " w ") + (castling.length() > 0 ? castling : "-") + " " +
+                enPassant + " " + fields[4] + " " + fields[5];
+    }
+
+    private static String swapCase(String text){
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()){
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+}
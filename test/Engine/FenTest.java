@@ -0,0 +1,107 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that positions survive writing and reading back, that impossible castling rights are
+ * dropped and that positions the move generator can't play from are rejected.
+ */
+class FenTest {
+
+    @Test
+    void roundTripsTheTestPositions(){
+        for (String[] test : Perft.SUITE){
+            Position position = Fen.parse(test[1]);
+            assertEquals(test[1], Fen.toString(position));
+            assertEquals(position.computeKey(), position.getKey(), test[1]);
+        }
+    }
+
+    @Test
+    void roundTripsIntoAReusedPosition(){
+        Position position = new Position();
+        for (String[] test : Perft.SUITE){
+            Fen.parse(test[1], position);
+            assertEquals(test[1], Fen.toString(position));
+            assertEquals(Fen.parse(test[1]).getKey(), position.getKey(), test[1]);
+        }
+    }
+
+    @Test
+    void keepsOnlyUsableEnPassantSquares(){
+        assertEquals("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3",
+                Fen.toString(Fen.parse("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3")));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1",
+                Fen.toString(Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+    }
+
+    @Test
+    void dropsCastlingRightsWithoutKingAndRook(){
+        Position position = Fen.parse("4k3/8/8/8/8/8/8/4K3 w KQkq - 0 1");
+        assertEquals(0, position.getCastlingRights());
+        assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", Fen.toString(position));
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+        for (int i = 0; i < count; i++){
+            assertFalse(Move.isCastle(moves[i]), Move.toString(moves[i]));
+        }
+        assertEquals(position.computeKey(), position.getKey());
+
+        assertEquals("r3k3/8/8/8/8/8/8/4K2R w Kq - 0 1",
+                Fen.toString(Fen.parse("r3k3/8/8/8/8/8/8/4K2R w KQkq - 0 1")));
+        assertEquals("r3k2r/8/8/8/8/8/8/R2K3R w kq - 0 1",
+                Fen.toString(Fen.parse("r3k2r/8/8/8/8/8/8/R2K3R w KQkq - 0 1")));
+        assertEquals("1r2k2r/8/8/8/8/8/8/R3K2R b KQk - 0 1",
+                Fen.toString(Fen.parse("1r2k2r/8/8/8/8/8/8/R3K2R b KQkq - 0 1")));
+    }
+
+    @Test
+    void rejectsTheSideNotToMoveInCheck(){
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/8/8/4r3/4K3 b - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k2R/8/8/8/8/8/8/4K3 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/3P4/8/8/8/8/8/4K3 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/8/8/4r3/4K3 b - -", new Position()));
+
+        // The side to move may be in check
+        Position position = Fen.parse("4k3/8/8/8/8/8/4r3/4K3 w - - 0 1");
+        assertTrue(position.isInCheck(Position.WHITE));
+    }
+
+    @Test
+    void rejectsImpossibleEnPassantSquares(){
+        // Wrong rank for the side to move
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/3P4/4p3/8/8/4K3 w - e3 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/3Pp3/8/8/8/4K3 b - e6 0 1"));
+        // No pawn of the side which just moved in front of it
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/3P4/8/8/8/4K3 w - e6 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/3PP3/8/8/8/4K3 w - e6 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/3pn3/8/8/4K3 b - e3 0 1"));
+        // Occupied
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/4n3/3Pp3/8/8/8/4K3 w - e6 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/3pP3/4N3/8/4K3 b - e3 0 1"));
+        // The square the pawn came from isn't empty
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/4b3/8/3Pp3/8/8/8/4K3 w - e6 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/3pP3/8/4B3/4K3 b - e3 0 1"));
+
+        // A possible square is kept, or dropped without an error if no pawn can take
+        assertEquals("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1", Fen.toString(Fen.parse("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1")));
+        assertEquals("4k3/8/8/4p3/8/8/8/4K3 w - - 0 1", Fen.toString(Fen.parse("4k3/8/8/4p3/8/8/8/4K3 w - e6 0 1")));
+    }
+
+    @Test
+    void rejectsPawnsOnTheBackRanks(){
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("P3k3/8/8/8/8/8/8/4K3 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("4k3/8/8/8/8/8/8/p3K3 w - - 0 1"));
+    }
+
+    @Test
+    void rejectsMalformedText(){
+        for (String fen : new String[]{"", "8/8/8/8/8/8/8/8 w - - 0 1", "4k3/8/8/8/8/8/8/4K3 x - - 0 1",
+                "4k3/8/8/8/8/8/8/4K4 w - - 0 1", "4k3/8/8/8/8/8/4K3 w - - 0 1", "4k3/8/8/8/8/8/8/4K3 w X - 0 1",
+                "4k3/8/8/8/8/8/8/4X3 w - - 0 1", "4k3/8/8/8/8/8/8/4K3 w - z9 0 1"}){
+            assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Checks that positions and games survive writing and reading back, and that bytes which aren't a
+ * position the move generator can play from are rejected.
+ */
+class GameFileTest {
+
+    private static final String[] POSITIONS = {
+            "4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1", "4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1",
+            "r3k2r/8/8/8/8/8/8/R3K2R b Kq - 12 40", "8/8/8/8/8/8/8/K6k w - - 99 200",
+    };
+
+    @Test
+    void roundTripsPositions(){
+        ByteBuffer buffer = ByteBuffer.allocate(GameFile.POSITION_BYTES);
+        Position read = new Position();
+        for (String fen : allPositions()){
+            buffer.clear();
+            GameFile.writePosition(Fen.parse(fen), buffer);
+            assertEquals(GameFile.POSITION_BYTES, buffer.position());
+            buffer.flip();
+            GameFile.readPosition(buffer, read);
+            assertEquals(fen, Fen.toString(read));
+            assertEquals(Fen.parse(fen).getKey(), read.getKey(), fen);
+        }
+    }
+
+    @Test
+    void roundTripsGames(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("games.bin");
+        Position start = Fen.parse(Fen.START);
+        int[] moves = new int[4];
+        Position position = new Position(start);
+        for (int i = 0; i < moves.length; i++){
+            int[] legal = new int[MoveGenerator.MAX_MOVES];
+            MoveGenerator.generateLegal(position, legal, 0);
+            moves[i] = legal[i];
+            position.makeMove(moves[i]);
+        }
+        try (GameFile.Writer writer = new GameFile.Writer(file)){
+            writer.writeGame(start, moves, moves.length, GameFile.DRAW);
+            for (String fen : allPositions()){
+                writer.writePosition(Fen.parse(fen));
+            }
+            assertEquals(1 + allPositions().length, writer.getGames());
+        }
+
+        Position read = new Position();
+        try (GameFile.Reader reader = new GameFile.Reader(file)){
+            assertTrue(reader.next(read));
+            assertEquals(Fen.START, Fen.toString(read));
+            assertEquals(GameFile.DRAW, reader.getResult());
+            assertEquals(moves.length, reader.getMoveCount());
+            for (int i = 0; i < moves.length; i++){
+                read.makeMove(reader.getMoves()[i]);
+            }
+            assertEquals(Fen.toString(position), Fen.toString(read));
+            for (String fen : allPositions()){
+                assertTrue(reader.next(read));
+                assertEquals(fen, Fen.toString(read));
+                assertEquals(0, reader.getMoveCount());
+            }
+            assertFalse(reader.next(read));
+        }
+    }
+
+    @Test
+    void rejectsPositionsTheGeneratorCantPlayFrom(){
+        // No black king, and two white kings
+        assertRejected(position("4K3", Position.WHITE, 0, -1));
+        assertRejected(position("4k3/8/8/8/8/8/8/K3K3", Position.WHITE, 0, -1));
+        // Pawn on the last rank
+        assertRejected(position("P3k3/8/8/8/8/8/8/4K3", Position.WHITE, 0, -1));
+        // The side not to move in check
+        assertRejected(position("4k3/8/8/8/8/8/4r3/4K3", Position.BLACK, 0, -1));
+        // Castling rights without the rooks, or with the king off its square
+        assertRejected(position("4k3/8/8/8/8/8/8/4K3", Position.WHITE, Position.WHITE_KINGSIDE, -1));
+        assertRejected(position("r3k2r/8/8/8/8/8/8/R2K3R", Position.WHITE, Position.WHITE_QUEENSIDE, -1));
+        // En passant squares no double push can have left
+        assertRejected(position("4k3/8/8/3P4/8/8/8/4K3", Position.WHITE, 0, Bitboards.square(2, 4)));
+        assertRejected(position("4k3/8/8/3Pp3/8/8/8/4K3", Position.WHITE, 0, Bitboards.square(4, 4)));
+        assertRejected(position("4k3/8/4n3/3Pp3/8/8/8/4K3", Position.WHITE, 0, Bitboards.square(2, 4)));
+
+        // A piece code which doesn't exist
+        ByteBuffer buffer = ByteBuffer.allocate(GameFile.POSITION_BYTES);
+        GameFile.writePosition(Fen.parse(Fen.START), buffer);
+        buffer.put(8, (byte)0xFF);
+        buffer.flip();
+        assertThrows(IllegalArgumentException.class, () -> GameFile.readPosition(buffer, new Position()));
+    }
+
+    /**
+     * Writes "position" and checks that reading it back fails
+     */
+    private static void assertRejected(Position position){
+        ByteBuffer buffer = ByteBuffer.allocate(GameFile.POSITION_BYTES);
+        GameFile.writePosition(position, buffer);
+        buffer.flip();
+        assertThrows(IllegalArgumentException.class, () -> GameFile.readPosition(buffer, new Position()));
+    }
+
+    /**
+     * @return - A position with the pieces of a FEN placement, set up without any of the checks of Fen.parse
+     */
+    private static Position position(String placement, int side, int castlingRights, int enPassantSquare){
+        Position position = new Position();
+        String[] ranks = placement.split("/");
+        for (int rank = 0; rank < ranks.length; rank++){
+            int file = 0;
+            for (char c : ranks[rank].toCharArray()){
+                if (Character.isDigit(c)){
+                    file += c - '0';
+                }else{
+                    int code = "RNBQKPrnbqkp".indexOf(c);
+                    position.addPiece(code / 6, code % 6, Bitboards.square(rank, file++));
+                }
+            }
+        }
+        position.setSideToMove(side);
+        position.setCastlingRights(castlingRights);
+        position.setEnPassantSquare(enPassantSquare);
+        return position;
+    }
+
+    private static String[] allPositions(){
+        String[] all = new String[Perft.SUITE.length + POSITIONS.length];
+        for (int i = 0; i < Perft.SUITE.length; i++){
+            all[i] = Perft.SUITE[i][1];
+        }
+        System.arraycopy(POSITIONS, 0, all, Perft.SUITE.length, POSITIONS.length);
+        return all;
+    }
+}
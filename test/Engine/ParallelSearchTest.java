@@ -0,0 +1,41 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the searches and positions a parallel search keeps for its threads start every
+ * search afresh: from the new root, without the stop of the last search, and without changing the
+ * position passed in.
+ */
+class ParallelSearchTest {
+
+    @Test
+    void reusedThreadsSearchEachNewRoot(){
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(16), 3);
+        try {
+            String[] fens = {"7k/8/8/8/8/8/R7/1R4K1 w - - 0 1", "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4",
+                    "1r4k1/r7/8/8/8/8/8/7K b - - 0 1"};
+            int[] mates = {3, 1, 3};
+            for (int round = 0; round < 2; round++){
+                for (int i = 0; i < fens.length; i++){
+                    Position position = Fen.parse(fens[i]);
+                    Search result = search.search(position, 8, 0, 0);
+                    assertEquals(Search.MATE - mates[i], result.getScore(), fens[i]);
+                    assertTrue(result.getDepth() >= mates[i], fens[i]);
+                    assertEquals(fens[i], Fen.toString(position));
+                    assertEquals(position.computeKey(), position.getKey());
+                    search.stop();  // Left over when the next search starts
+                }
+            }
+
+            // The threads search the new root to the full depth after the stop
+            Search result = search.search(Fen.parse(Fen.START), 5, 0, 0);
+            assertEquals(5, result.getDepth());
+            assertTrue(search.getNodes() > result.getNodes());
+        }finally {
+            search.close();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that the PGN reader follows the main line past comments, variations and NAGs, that games
+ * with a move it can't resolve are reported as invalid without losing the games after them, and
+ * that neither the buffer refills of the streaming reader nor the split points of the parallel
+ * reader lose or repeat a game.
+ */
+class PgnTest {
+
+    private static final String MAIN_LINE = "e4 e5 Nf3 Nc6 Bb5 a6 Ba4 Nf6 O-O Be7 Re1 b5 Bb3 d6 c3 O-O h3 Nb8 d4 Nbd7"
+            + " Nbd2 Bb7 Bc2 Re8 Nf1 Bf8 Ng3 g6 a4 c5 d5 c4 Bg5 h6 Be3 Nc5 Qd2 h5 Bg5 Be7 Rad1 Qc7";
+
+    private static final String MOVETEXT = """
+            1. e4 e5 2. Nf3 {Attacks e5 (and more); not a variation} Nc6 3. Bb5 (3. Bc4 Bc5 (3... Nf6 4. d3) 4. c3)
+            3... a6 $1 4. Ba4 ; a line comment with 5. Qh5
+            Nf6 5. O-O!? Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O 9. h3 Nb8 10. d4 Nbd7 11.Nbd2 Bb7 12. Bc2 Re8
+            % an escaped line
+            13. Nf1 Bf8 14. Ng3 g6 15. a4 c5 16. d5 c4 17. Bg5 h6 18. Be3 Nc5 {
+            a comment over two lines } 19. Qd2 h5 20. Bg5 Be7 21. Rad1 $14 21...Qc7 1/2-1/2
+            """;
+
+    @Test
+    void followsTheMainLine() throws IOException {
+        Recorder recorder = new Recorder();
+        assertEquals(1, read(game("Main line", MOVETEXT), recorder));
+        assertEquals(List.of(), recorder.invalid);
+        assertEquals(List.of("Main line"), recorder.events);
+        assertEquals(List.of("1/2-1/2"), recorder.results);
+        assertEquals(List.of(mainLineEnd()), recorder.ends);
+        assertEquals(MAIN_LINE.split(" ").length, recorder.moves);
+    }
+
+    @Test
+    void startsFromTheFenTag() throws IOException {
+        Recorder recorder = new Recorder();
+        String text = "[Event \"Promotion\"]\n[FEN \"r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1\"]\n\n1. bxa8=Q+ Kd7 2. Qb7+ Ke6 3. Kf2 *\n";
+        assertEquals(1, read(text, recorder));
+        assertEquals(List.of("8/1Q6/4k3/8/8/8/5K2/8 b - - 4 3"), recorder.ends);
+        assertEquals(List.of("*"), recorder.results);
+    }
+
+    @Test
+    void reportsGamesWithIllegalOrAmbiguousMoves() throws IOException {
+        Recorder recorder = new Recorder();
+        String text = game("Illegal", "1. e4 e5 2. Ke3 Nc6 1-0")
+                + "[Event \"Ambiguous\"]\n[FEN \"4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1\"]\n\n1. Nd2 Kd7 *\n\n"
+                + "[Event \"Bad FEN\"]\n[FEN \"4k3/8/8/8/8/8/8/4K3 w - e6 0 1\"]\n\n1. Kd2 *\n\n"
+                + game("Main line", MOVETEXT);
+        assertEquals(4, read(text, recorder));
+        assertEquals(3, recorder.invalid.size(), recorder.invalid.toString());
+        assertTrue(recorder.invalid.get(0).contains("Ke3"), recorder.invalid.get(0));
+        assertTrue(recorder.invalid.get(1).contains("Nd2"), recorder.invalid.get(1));
+        assertEquals(List.of(mainLineEnd()), recorder.ends);
+        assertEquals(List.of("1/2-1/2"), recorder.results);
+    }
+
+    @Test
+    void readsGamesAcrossBufferRefills() throws IOException {
+        // Games of an odd length put a buffer boundary at a different place in each of them
+        StringBuilder text = new StringBuilder();
+        int count = 0;
+        while (text.length() < 3 << 16){
+            text.append(game("Game " + count++, MOVETEXT));
+        }
+        // A comment and a tag value longer than the buffer
+        String comment = "x".repeat(1 << 17);
+        text.append("[Event \"").append(comment).append("\"]\n\n1. e4 {").append(comment).append("} e5 *\n");
+        text.append(game("Last", MOVETEXT));
+        count += 2;
+
+        Recorder recorder = new Recorder();
+        assertEquals(count, read(text.toString(), recorder));
+        assertEquals(List.of(), recorder.invalid);
+        assertEquals(count, recorder.ends.size());
+        assertEquals(comment, recorder.events.get(count - 2));
+        assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2", recorder.ends.get(count - 2));
+        for (int i = 0; i < count; i++){
+            if (i != count - 2){
+                assertEquals(mainLineEnd(), recorder.ends.get(i), recorder.events.get(i));
+            }
+        }
+    }
+
+    @Test
+    void readsEveryGameOnceOnAnyNumberOfThreads(@TempDir Path directory) throws IOException {
+        // Twelve games of the same length, so that two, three, four and six threads split the
+        // file exactly at the start of a game and the other counts split it inside one
+        int count = 12;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++){
+            text.append(game(String.format("Game %02d", i), MOVETEXT));
+        }
+        Path file = directory.resolve("games.pgn");
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++){
+            expected.add(String.format("Game %02d", i));
+        }
+        for (int threads = 1; threads <= 2 * count; threads++){
+            List<Recorder> recorders = Collections.synchronizedList(new ArrayList<>());
+            long games = Pgn.readParallel(file, threads, () -> {
+                Recorder recorder = new Recorder();
+                recorders.add(recorder);
+                return recorder;
+            });
+            assertEquals(count, games, threads + " threads");
+            List<String> events = new ArrayList<>();
+            for (Recorder recorder : recorders){
+                assertEquals(List.of(), recorder.invalid, threads + " threads");
+                for (String end : recorder.ends){
+                    assertEquals(mainLineEnd(), end, threads + " threads");
+                }
+                events.addAll(recorder.events);
+            }
+            Collections.sort(events);
+            assertEquals(expected, events, threads + " threads");
+        }
+    }
+
+    /**
+     * Records what a reader reports
+     */
+    private static final class Recorder implements Pgn.Listener {
+        final List<String> events = new ArrayList<>();
+        final List<String> results = new ArrayList<>();
+        final List<String> ends = new ArrayList<>();
+        final List<String> invalid = new ArrayList<>();
+        Position position;
+        int moves;
+
+        @Override
+        public void tag(String name, String value){
+            if (name.equals("Event")){
+                events.add(value);
+            }
+        }
+
+        @Override
+        public void startGame(Position position){
+            this.position = position;
+        }
+
+        @Override
+        public void move(Position position, int move){
+            assertSame(this.position, position);
+            moves++;
+        }
+
+        @Override
+        public void endGame(String result){
+            results.add(result);
+            ends.add(Fen.toString(position));
+        }
+
+        @Override
+        public void invalidGame(String reason){
+            invalid.add(reason);
+        }
+    }
+
+    private static long read(String text, Pgn.Listener listener) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return new Pgn(Channels.newChannel(new ByteArrayInputStream(bytes)), listener).read();
+    }
+
+    private static String game(String event, String movetext){
+        return "[Event \"" + event + "\"]\n[White \"A\"]\n[Black \"B\"]\n[Result \"1/2-1/2\"]\n\n" + movetext + "\n";
+    }
+
+    /**
+     * @return - The position after MAIN_LINE, played without the PGN reader
+     */
+    private static String mainLineEnd(){
+        Position position = Fen.parse(Fen.START);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String san : MAIN_LINE.split(" ")){
+            int move = San.parse(position, san, moves);
+            assertNotEquals(Move.NONE, move, san);
+            position.makeMove(move);
+        }
+        return Fen.toString(position);
+    }
+}
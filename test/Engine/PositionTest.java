@@ -0,0 +1,166 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Checks that makeMove and unmakeMove are exactly reversible and keep the incremental state right,
+ * at every node of a perft from the standard test positions. Before every move the position is
+ * copied; after the move its key, pawn key, material and square scores, phase and attack maps must
+ * equal those of the same position set up from scratch, and after unmakeMove everything must equal
+ * the copy again.
+ */
+class PositionTest {
+
+    private static final int DEPTH = 3;
+
+    @TestFactory
+    Stream<DynamicTest> makeAndUnmakeAreReversible(){
+        return Arrays.stream(Perft.SUITE).map(test -> DynamicTest.dynamicTest(test[0], () -> {
+            Position position = Fen.parse(test[1]);
+            assertConsistent(position);
+            long nodes = walk(position, DEPTH, new int[DEPTH][MoveGenerator.MAX_MOVES]);
+            assertEquals(Long.parseLong(test[DEPTH + 1]), nodes, "perft " + DEPTH);
+            assertSameState(Fen.parse(test[1]), position);
+            assertEquals(0, position.getPly());
+        }));
+    }
+
+    @Test
+    void copyHasTheSameState(){
+        Position reused = Fen.parse(Fen.START);
+        for (String[] test : Perft.SUITE){
+            Position position = Fen.parse(test[1]);
+            assertSameState(position, new Position(position));
+            reused.copyFrom(position);
+            assertSameState(position, reused);
+        }
+    }
+
+    @Test
+    void repetitionsAreCountedAcrossMakeAndUnmake(){
+        Position position = Fen.parse(Fen.START);
+        int[] moves = {move(position, "g1f3"), 0, 0, 0};
+        position.makeMove(moves[0]);
+        moves[1] = move(position, "g8f6");
+        position.makeMove(moves[1]);
+        moves[2] = move(position, "f3g1");
+        position.makeMove(moves[2]);
+        moves[3] = move(position, "f6g8");
+        position.makeMove(moves[3]);
+        assertEquals(1, position.repetitions());
+        for (int i = 3; i >= 0; i--){
+            position.unmakeMove(moves[i]);
+        }
+        assertEquals(0, position.repetitions());
+        assertSameState(Fen.parse(Fen.START), position);
+    }
+
+    /**
+     * Plays every legal move to "depth", checking the state before and after each one
+     * @return - The number of leaf nodes
+     */
+    private static long walk(Position position, int depth, int[][] lists){
+        int[] list = lists[depth - 1];
+        int count = MoveGenerator.generateLegal(position, list, 0);
+        if (depth == 1){
+            for (int i = 0; i < count; i++){
+                Position before = new Position(position);
+                position.makeMove(list[i]);
+                assertConsistent(position);
+                position.unmakeMove(list[i]);
+                assertSameState(before, position);
+            }
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++){
+            Position before = new Position(position);
+            int ply = position.getPly();
+            position.makeMove(list[i]);
+            assertConsistent(position);
+            nodes += walk(position, depth - 1, lists);
+            position.unmakeMove(list[i]);
+            assertSameState(before, position);
+            assertEquals(ply, position.getPly(), Move.toString(list[i]));
+        }
+        return nodes;
+    }
+
+    /**
+     * Checks the incrementally updated state of "position" against the same position set up from scratch
+     */
+    private static void assertConsistent(Position position){
+        String fen = Fen.toString(position);
+        assertEquals(position.computeKey(), position.getKey(), fen);
+        assertSameState(Fen.parse(fen), position);
+
+        long pawnKey = 0L;
+        int pieceScore = 0;
+        int phase = 0;
+        for (int square = 0; square < 64; square++){
+            int piece = position.pieceAt(square);
+            if (piece == Position.NO_PIECE){
+                continue;
+            }
+            pawnKey ^= (piece % 6 == Position.PAWN) ? Zobrist.PIECES[piece][square] : 0L;
+            pieceScore += Evaluation.PIECE_SCORES[piece][square];
+            phase += Evaluation.PHASE[piece % 6];
+            assertEquals(position.attacksFrom(piece / 6, piece % 6, square), position.getAttacks(square), fen);
+        }
+        for (int square = 0; square < 64; square++){
+            for (int color = 0; color < 2; color++){
+                assertEquals((position.getAttacked(color) & 1L << square) != 0, position.isSquareAttacked(square, color), fen);
+            }
+        }
+        assertEquals(pawnKey, position.getPawnKey(), fen);
+        assertEquals(pieceScore, position.getPieceScore(), fen);
+        assertEquals(phase, position.getPhase(), fen);
+    }
+
+    /**
+     * Checks that two positions hold the same pieces, state, keys, scores and attack maps
+     */
+    private static void assertSameState(Position expected, Position actual){
+        String fen = Fen.toString(expected);
+        for (int color = 0; color < 2; color++){
+            for (int type = 0; type < 6; type++){
+                assertEquals(expected.getPieces(color, type), actual.getPieces(color, type), fen);
+            }
+            assertEquals(expected.getColor(color), actual.getColor(color), fen);
+            assertEquals(expected.getAttacked(color), actual.getAttacked(color), fen);
+        }
+        for (int square = 0; square < 64; square++){
+            assertEquals(expected.pieceAt(square), actual.pieceAt(square), fen);
+            assertEquals(expected.getAttacks(square), actual.getAttacks(square), fen);
+        }
+        assertEquals(expected.getSideToMove(), actual.getSideToMove(), fen);
+        assertEquals(expected.getCastlingRights(), actual.getCastlingRights(), fen);
+        assertEquals(expected.getEnPassantSquare(), actual.getEnPassantSquare(), fen);
+        assertEquals(expected.getHalfmoveClock(), actual.getHalfmoveClock(), fen);
+        assertEquals(expected.getFullmoveNumber(), actual.getFullmoveNumber(), fen);
+        assertEquals(expected.getKey(), actual.getKey(), fen);
+        assertEquals(expected.getPawnKey(), actual.getPawnKey(), fen);
+        assertEquals(expected.getPieceScore(), actual.getPieceScore(), fen);
+        assertEquals(expected.getPhase(), actual.getPhase(), fen);
+    }
+
+    /**
+     * @return - The legal move of "position" written as "text" in coordinate notation
+     */
+    private static int move(Position position, String text){
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, moves, 0);
+        for (int i = 0; i < count; i++){
+            if (Move.toString(moves[i]).equals(text)){
+                return moves[i];
+            }
+        }
+        throw new AssertionError("Illegal move " + text);
+    }
+}
@@ -0,0 +1,117 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that SAN moves resolve to exactly one legal move, that illegal and ambiguous ones are
+ * rejected, and that every legal move written by San.toString reads back as itself.
+ */
+class SanTest {
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    @Test
+    void disambiguatesByFile(){
+        Position position = Fen.parse("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1");
+        assertEquals(Move.NONE, San.parse(position, "Nd2", moves));
+        assertEquals("b1d2", move(position, "Nbd2"));
+        assertEquals("f1d2", move(position, "Nfd2"));
+        assertEquals("Nbd2", San.toString(position, San.parse(position, "Nbd2", moves), moves));
+    }
+
+    @Test
+    void disambiguatesByRank(){
+        Position position = Fen.parse("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        assertEquals(Move.NONE, San.parse(position, "Ra3", moves));
+        assertEquals("a1a3", move(position, "R1a3"));
+        assertEquals("a5a3", move(position, "R5a3"));
+        assertEquals("R5a3", San.toString(position, San.parse(position, "R5a3", moves), moves));
+    }
+
+    @Test
+    void disambiguatesBySquare(){
+        // Queens on a1, a3 and c1 all reach b2, so neither the file nor the rank is enough
+        Position position = Fen.parse("7K/8/8/7k/8/Q7/8/Q1Q5 w - - 0 1");
+        assertEquals(Move.NONE, San.parse(position, "Qb2", moves));
+        assertEquals(Move.NONE, San.parse(position, "Qab2", moves));
+        assertEquals(Move.NONE, San.parse(position, "Q1b2", moves));
+        assertEquals("a1b2", move(position, "Qa1b2"));
+        assertEquals("a3b2", move(position, "Q3b2"));
+        assertEquals("c1b2", move(position, "Qcb2"));
+        assertEquals("Qa1b2", San.toString(position, San.parse(position, "Qa1b2", moves), moves));
+    }
+
+    @Test
+    void readsCastling(){
+        Position position = Fen.parse(Perft.SUITE[1][1]);   // Kiwipete, with all four rights
+        assertEquals(Move.KING_CASTLE, Move.flags(San.parse(position, "O-O", moves)));
+        assertEquals(Move.QUEEN_CASTLE, Move.flags(San.parse(position, "O-O-O", moves)));
+        assertEquals(Move.KING_CASTLE, Move.flags(San.parse(position, "0-0", moves)));
+        assertEquals(Move.QUEEN_CASTLE, Move.flags(San.parse(position, "0-0-0+", moves)));
+        assertEquals("O-O", San.toString(position, San.parse(position, "O-O", moves), moves));
+        assertEquals("O-O-O", San.toString(position, San.parse(position, "O-O-O", moves), moves));
+
+        Position noRights = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1");
+        assertEquals(Move.NONE, San.parse(noRights, "O-O", moves));
+        assertEquals(Move.NONE, San.parse(noRights, "O-O-O", moves));
+    }
+
+    @Test
+    void readsPromotions(){
+        Position position = Fen.parse("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals("b7b8q", move(position, "b8=Q"));
+        assertEquals("b7b8q", move(position, "b8Q"));
+        assertEquals("b7b8n", move(position, "b8=N"));
+        assertEquals("b7a8r", move(position, "bxa8=R"));
+        assertEquals("b7a8b", move(position, "bxa8B"));
+        assertEquals(Move.NONE, San.parse(position, "b8", moves));
+        assertEquals(Move.NONE, San.parse(position, "b8=K", moves));
+        assertEquals("bxa8=Q+", San.toString(position, San.parse(position, "bxa8=Q", moves), moves));
+    }
+
+    @Test
+    void ignoresCheckAndAnnotationMarks(){
+        Position position = Fen.parse("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4");
+        assertEquals("h5f7", move(position, "Qxf7#"));
+        assertEquals("h5f7", move(position, "Qxf7+"));
+        assertEquals("h5f7", move(position, "Qf7!!"));
+        assertEquals("h5f7", move(position, "Qxf7#?!"));
+        assertEquals("Qxf7#", San.toString(position, San.parse(position, "Qxf7", moves), moves));
+    }
+
+    @Test
+    void rejectsIllegalMoves(){
+        Position position = Fen.parse(Fen.START);
+        for (String san : new String[]{"e5", "Ke2", "Nd2", "Bb5", "exd3", "O-O", "Qh5", "e4=Q", "Zz9", "x", "", "e9",
+                "Nc3c4"}){
+            assertEquals(Move.NONE, San.parse(position, san, moves), san);
+        }
+        // A pinned piece can't move
+        assertEquals(Move.NONE, San.parse(Fen.parse("4k3/4r3/8/8/8/8/4N3/4K3 w - - 0 1"), "Nc3", moves));
+    }
+
+    @Test
+    void readsBackEveryMoveItWrites(){
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        for (String[] test : Perft.SUITE){
+            Position position = Fen.parse(test[1]);
+            int count = MoveGenerator.generateLegal(position, legal, 0);
+            for (int i = 0; i < count; i++){
+                String san = San.toString(position, legal[i], moves);
+                assertEquals(legal[i], San.parse(position, san, moves), test[0] + " " + san);
+            }
+            assertEquals(test[1], Fen.toString(position));
+        }
+    }
+
+    /**
+     * @return - The move "san" resolves to in coordinate notation, failing if it resolves to none
+     */
+    private String move(Position position, String san){
+        int move = San.parse(position, san, moves);
+        assertNotEquals(Move.NONE, move, san);
+        return Move.toString(move);
+    }
+}
@@ -0,0 +1,86 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the search finds forced mates with the right distance, and scores stalemate and a
+ * perpetual check as draws.
+ */
+class SearchTest {
+
+    private static final int DEPTH = 10;
+
+    @Test
+    void findsMatesInOne(){
+        assertEquals("h5f7", assertMates("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4", 1));
+        // Mates instead of stalemating with Qf7
+        assertEquals("f1f8", assertMates("7k/8/6K1/8/8/8/8/5Q2 w - - 0 1", 1));
+    }
+
+    @Test
+    void findsLongerMates(){
+        assertMates("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1", 2);
+        assertMates("1r4k1/r7/8/8/8/8/8/7K b - - 0 1", 2);
+        assertMates("6k1/8/5K2/8/8/8/8/R7 w - - 0 1", 2);
+    }
+
+    @Test
+    void scoresBeingMated(){
+        Search search = search("7k/R7/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals("h8g8", Move.toString(search.getBestMove()));
+        assertEquals(-Search.MATE + 2, search.getScore());
+        Search mated = search("R6k/8/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(Move.NONE, mated.getBestMove());
+        assertEquals(-Search.MATE, mated.getScore());
+    }
+
+    @Test
+    void scoresStalemateAsADraw(){
+        Search search = search("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(Move.NONE, search.getBestMove());
+        assertEquals(0, search.getScore());
+    }
+
+    @Test
+    void drawsByPerpetualCheck(){
+        // A queen and rook down, White checks on e8 and h5 forever
+        Search search = search("7k/6p1/8/8/8/1r6/1q3PPP/4Q1K1 w - - 0 1");
+        assertEquals("e1e8", Move.toString(search.getBestMove()));
+        assertEquals(0, search.getScore());
+        assertTrue(search.getPrincipalVariation().startsWith("e1e8 h8h7 e8h5 h7g8"), search.getPrincipalVariation());
+    }
+
+    /**
+     * Checks that the side to move mates in "moves" moves, and no sooner, and that every reply to
+     * its move leaves a mate in one move fewer
+     * @return - The mating move
+     */
+    private static String assertMates(String fen, int moves){
+        Search search = search(fen);
+        assertEquals(Search.MATE - (2 * moves - 1), search.getScore(), fen);
+        int best = search.getBestMove();
+
+        Position position = Fen.parse(fen);
+        position.makeMove(best);
+        int[] replies = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, replies, 0);
+        if (moves == 1){
+            assertEquals(0, count, fen);
+            assertTrue(position.isInCheck(position.getSideToMove()), fen);
+        }
+        for (int i = 0; i < count; i++){
+            position.makeMove(replies[i]);
+            assertMates(Fen.toString(position), moves - 1);
+            position.unmakeMove(replies[i]);
+        }
+        return Move.toString(best);
+    }
+
+    private static Search search(String fen){
+        Search search = new Search(Fen.parse(fen), new TranspositionTable(16));
+        search.search(DEPTH, 0, 0);
+        return search;
+    }
+}
@@ -0,0 +1,142 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Generates the default tables and checks them against known results: the longest mates of KQK
+ * and KRK, won and drawn KPK positions, and the same score for a position and its color mirror.
+ */
+class TablebaseTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebase tablebase;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        tablebase = new Tablebase(directory);
+        for (String name : Tablebase.DEFAULT_TABLES){
+            tablebase.generate(name, 2);
+        }
+    }
+
+    @Test
+    void longestMatesAreKnownLengths() throws IOException {
+        assertEquals(10, longestMate("KQK"));
+        assertEquals(16, longestMate("KRK"));
+        // Reopening the directory finds every table, including those the promotions of KPK lead to
+        assertEquals(List.of(tablebase.getTables()), List.of(new Tablebase(directory).getTables()));
+    }
+
+    @Test
+    void knowsWonAndDrawnPawnEndings(){
+        // With the king in front of the pawn on the sixth rank it wins whoever moves,
+        // but on the fifth rank only when the opponent has to move
+        assertWhiteWins("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1");
+        assertWhiteWins("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+        assertWhiteWins("8/4k3/8/4K3/4P3/8/8/8 b - - 0 1");
+        assertDraw("8/4k3/8/4K3/4P3/8/8/8 w - - 0 1");
+        // Stalemate
+        assertDraw("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1");
+        // A rook pawn with the defending king in the corner is a draw
+        assertDraw("k7/8/K7/P7/8/8/8/8 w - - 0 1");
+        assertDraw("k7/8/K7/P7/8/8/8/8 b - - 0 1");
+        assertDraw("8/k7/8/8/8/8/P7/K7 w - - 0 1");
+        // The king can't catch a pawn outside its square
+        assertWhiteWins("7k/8/8/8/P7/8/8/K7 w - - 0 1");
+        // A mate in one
+        assertEquals(Search.MATE - 1, tablebase.probe(Fen.parse("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1")));
+        assertEquals(-Search.MATE + 0, tablebase.probe(Fen.parse("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1")));
+    }
+
+    @Test
+    void scoresTheColorMirrorTheSame(){
+        int[] tests = {0, 0};
+        for (String name : Tablebase.DEFAULT_TABLES){
+            EndgameTable table = load(name);
+            Position position = new Position();
+            // Every 7th index reaches every square of every piece
+            for (int index = 0; index < table.getSize(); index += 7){
+                if (!table.setUp(index, position)){
+                    continue;
+                }
+                String fen;
+                try {
+                    fen = Fen.toString(Fen.parse(Fen.toString(position)));
+                }catch (IllegalArgumentException e){
+                    continue;   // Not a legal position
+                }
+                Position mirrored = Fen.parse(mirror(fen));
+                int score = tablebase.probe(Fen.parse(fen));
+                assertNotEquals(Tablebase.UNKNOWN, score, fen);
+                assertEquals(score, tablebase.probe(mirrored), fen);
+                tests[score == 0 ? 0 : 1]++;
+            }
+        }
+        assertTrue(tests[0] > 0 && tests[1] > 0);
+        assertEquals(Tablebase.UNKNOWN, tablebase.probe(Fen.parse("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1")));
+        assertEquals(Tablebase.UNKNOWN, tablebase.probe(Fen.parse("4k3/8/8/8/8/8/8/RR2K3 w - - 0 1")));
+    }
+
+    /**
+     * @return - The longest mate of a table, in moves of the side which mates
+     */
+    private static int longestMate(String name){
+        EndgameTable table = load(name);
+        int longest = 0;
+        for (int index = 0; index < table.getSize(); index++){
+            int plies = table.get(index) - 1;
+            if ((plies & 1) == 1){
+                longest = Math.max(longest, (plies + 1) / 2);
+            }
+        }
+        return longest;
+    }
+
+    private static EndgameTable load(String name){
+        try {
+            return EndgameTable.load(directory.resolve(name + ".tb"));
+        }catch (IOException e){
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Checks that the side with the pawn or piece, White, wins whichever side is to move
+     */
+    private static void assertWhiteWins(String fen){
+        int score = tablebase.probe(Fen.parse(fen));
+        assertNotEquals(Tablebase.UNKNOWN, score, fen);
+        assertTrue((Fen.parse(fen).getSideToMove() == Position.WHITE) ? score > 0 : score < 0, fen + ": " + score);
+    }
+
+    private static void assertDraw(String fen){
+        assertEquals(0, tablebase.probe(Fen.parse(fen)), fen);
+    }
+
+    /**
+     * @return - "fen" with the board turned around and the colors and side to move swapped
+     */
+    private static String mirror(String fen){
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int rank = ranks.length - 1; rank >= 0; rank--){
+            for (char c : ranks[rank].toCharArray()){
+                placement.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+            }
+            if (rank > 0){
+                placement.append('/');
+            }
+        }
+        return placement + (fields[1].equals("w") ? " b " : " w ") + "- - " + fields[4] + " " + fields[5];
+    }
+}
@@ -0,0 +1,136 @@
+package Engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Field;
+
+/**
+ * Checks what the table gives back, which entry of a bucket a store replaces, that an entry torn
+ * by two threads writing at once reads as a miss, and that mate scores are stored relative to the
+ * position.
+ */
+class TranspositionTableTest {
+
+    // Keys with the same high half fall in the same bucket
+    private static final long A = 0x1234_5678_0000_0001L;
+    private static final long B = 0x1234_5678_0000_0002L;
+    private static final long C = 0x1234_5678_0000_0003L;
+    private static final long D = 0x1234_5678_0000_0004L;
+
+    @Test
+    void givesBackWhatWasStored(){
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.of(52, 36, Move.DOUBLE_PUSH);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        table.store(A, move, -1234, 7, TranspositionTable.LOWER);
+        long entry = table.probe(A);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(B));
+
+        // Storing no move keeps the one already there
+        table.store(A, Move.NONE, Search.MATE - 3, 9, TranspositionTable.UPPER);
+        entry = table.probe(A);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(Search.MATE - 3, TranspositionTable.score(entry));
+        assertEquals(-Search.MATE + 3, TranspositionTable.score(store(-Search.MATE + 3)));
+
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+    }
+
+    @Test
+    void keepsTheDeepestResultOfTheSearch(){
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(A, Move.NONE, 10, 8, TranspositionTable.EXACT);
+        table.store(B, Move.NONE, 20, 3, TranspositionTable.EXACT);
+        assertEquals(8, TranspositionTable.depth(table.probe(A)));
+        assertEquals(3, TranspositionTable.depth(table.probe(B)));
+
+        // A shallower result takes the second entry, a deeper one the first
+        table.store(C, Move.NONE, 30, 2, TranspositionTable.EXACT);
+        assertNotEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(TranspositionTable.MISS, table.probe(B));
+        assertNotEquals(TranspositionTable.MISS, table.probe(C));
+        table.store(D, Move.NONE, 40, 9, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(9, TranspositionTable.depth(table.probe(D)));
+        assertNotEquals(TranspositionTable.MISS, table.probe(C));
+
+        // The same position is updated in place even with a shallower result
+        table.store(D, Move.NONE, 50, 1, TranspositionTable.EXACT);
+        assertEquals(50, TranspositionTable.score(table.probe(D)));
+        assertNotEquals(TranspositionTable.MISS, table.probe(C));
+    }
+
+    @Test
+    void replacesResultsOfOlderSearches(){
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(A, Move.NONE, 10, 20, TranspositionTable.EXACT);
+        table.store(B, Move.NONE, 20, 1, TranspositionTable.EXACT);
+        table.newSearch();
+        assertEquals(0, table.hashfull());
+        table.store(C, Move.NONE, 30, 1, TranspositionTable.EXACT);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertNotEquals(TranspositionTable.MISS, table.probe(B));
+        assertNotEquals(TranspositionTable.MISS, table.probe(C));
+    }
+
+    @Test
+    void treatsATornEntryAsAMiss() throws ReflectiveOperationException {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(A, Move.NONE, 10, 5, TranspositionTable.EXACT);
+        long[] keys = array(table, "keys");
+        long[] data = array(table, "data");
+        int slot = -1;
+        for (int i = 0; i < data.length; i++){
+            if (data[i] != TranspositionTable.MISS){
+                slot = i;
+            }
+        }
+
+        // Another thread writes the data of B into the entry after this one wrote the key of A
+        long written = data[slot];
+        data[slot] = store(-77);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(TranspositionTable.MISS, table.probe(B));
+
+        // With the data of its own store back, the key matches again
+        data[slot] = written;
+        assertEquals(10, TranspositionTable.score(table.probe(A)));
+        assertEquals(A, keys[slot] ^ data[slot]);
+    }
+
+    @Test
+    void storesMateScoresFromThePosition(){
+        // Mate in 5 plies from the root, found 3 plies down, is mate in 2 from there
+        assertEquals(Search.MATE - 2, Search.toTable(Search.MATE - 5, 3));
+        assertEquals(-Search.MATE + 2, Search.toTable(-Search.MATE + 5, 3));
+        // Reached again at ply 7 it is mate in 9 from the root
+        assertEquals(Search.MATE - 9, Search.fromTable(Search.toTable(Search.MATE - 5, 3), 7));
+        assertEquals(-Search.MATE + 9, Search.fromTable(Search.toTable(-Search.MATE + 5, 3), 7));
+        // Other scores are stored as they are
+        for (int score : new int[]{0, 1, -250, 5000, -9000}){
+            assertEquals(score, Search.toTable(score, 6));
+            assertEquals(score, Search.fromTable(score, 6));
+        }
+    }
+
+    /**
+     * @return - The entry a table holds after storing "score" for B
+     */
+    private static long store(int score){
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(B, Move.NONE, score, 4, TranspositionTable.EXACT);
+        return table.probe(B);
+    }
+
+    private static long[] array(TranspositionTable table, String name) throws ReflectiveOperationException {
+        Field field = TranspositionTable.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (long[])field.get(table);
+    }
+}
@@ -0,0 +1,117 @@
+package Game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import Engine.Fen;
+import Engine.Move;
+import Engine.MoveGenerator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the draw rules as the board applies them to the moves played on it: the fifty-move rule,
+ * insufficient material and threefold repetition, where positions only repeat with the same
+ * castling rights and en passant square.
+ */
+class ChessboardTest {
+
+    @Test
+    void fiftyMoveRuleStartsAtTheHundredthPly(){
+        Chessboard board = new Chessboard("4k3/8/8/8/8/8/8/R3K3 w - - 98 80");
+        play(board, "a1a2");
+        assertEquals("4k3/8/8/8/8/8/R7/4K3 b - - 99 80", board.toFen());
+        assertFalse(board.isFiftyMoveRule());
+        play(board, "e8d8");
+        assertTrue(board.isFiftyMoveRule());
+
+        // A capture on the last ply resets the count
+        Chessboard capture = new Chessboard("4k3/8/8/8/8/8/p7/R3K3 w - - 99 80");
+        play(capture, "a1a2");
+        assertEquals(0, capture.getPosition().getHalfmoveClock());
+        assertFalse(capture.isFiftyMoveRule());
+        // And so does a pawn move
+        Chessboard pawn = new Chessboard("4k3/8/8/8/8/8/4P3/4K3 w - - 99 80");
+        play(pawn, "e2e3");
+        assertFalse(pawn.isFiftyMoveRule());
+    }
+
+    @Test
+    void findsInsufficientMaterial(){
+        for (String fen : new String[]{"4k3/8/8/8/8/8/8/4K3 w - - 0 1", "4k3/8/8/8/8/8/8/2B1K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/1N2K3 b - - 0 1", "4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1", "4k3/8/8/8/8/8/8/B1B1K3 w - - 0 1"}){
+            assertTrue(new Chessboard(fen).isInsufficientMaterial(), fen);
+        }
+        // Bishops on both colors, two knights, or any pawn, rook or queen can still mate
+        for (String fen : new String[]{"2b1k3/8/8/8/8/8/8/2B1K3 w - - 0 1", "4k3/8/8/8/8/8/8/1NN1K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/1N2KB2 w - - 0 1", "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1", "4k3/8/8/8/8/8/8/R3K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/3QK3 w - - 0 1", Fen.START}){
+            assertFalse(new Chessboard(fen).isInsufficientMaterial(), fen);
+        }
+
+        // Taking the last piece which could mate
+        Chessboard board = new Chessboard("4k3/8/8/8/8/8/8/3rK3 w - - 0 1");
+        assertFalse(board.isInsufficientMaterial());
+        play(board, "e1d1");
+        assertTrue(board.isInsufficientMaterial());
+    }
+
+    @Test
+    void findsThreefoldRepetition(){
+        Chessboard board = new Chessboard();
+        String[] cycle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        play(board, cycle);
+        assertFalse(board.isThreefoldRepetition());
+        assertEquals(1, board.getPosition().repetitions());
+        play(board, cycle);
+        assertTrue(board.isThreefoldRepetition());
+    }
+
+    @Test
+    void positionsWithOtherCastlingRightsDontRepeat(){
+        // The first cycle takes away the kingside rights, so its position doesn't count as the start again
+        Chessboard board = new Chessboard("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        String[] cycle = {"h1g1", "h8g8", "g1h1", "g8h8"};
+        play(board, cycle);
+        assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w Qq - 4 3", board.toFen());
+        assertEquals(0, board.getPosition().repetitions());
+        play(board, cycle);
+        assertEquals(1, board.getPosition().repetitions());
+        assertFalse(board.isThreefoldRepetition());
+        play(board, cycle);
+        assertTrue(board.isThreefoldRepetition());
+    }
+
+    @Test
+    void positionsWithOtherEnPassantSquaresDontRepeat(){
+        // After e4 Black may take en passant; the same pieces four plies later are another position
+        Chessboard board = new Chessboard("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        play(board, "e2e4");
+        assertEquals("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1", board.toFen());
+        String[] cycle = {"e8d8", "e1d1", "d8e8", "d1e1"};
+        play(board, cycle);
+        assertEquals("4k3/8/8/8/3pP3/8/8/4K3 b - - 4 3", board.toFen());
+        assertEquals(0, board.getPosition().repetitions());
+        play(board, cycle);
+        assertEquals(1, board.getPosition().repetitions());
+        assertFalse(board.isThreefoldRepetition());
+        play(board, cycle);
+        assertTrue(board.isThreefoldRepetition());
+    }
+
+    /**
+     * Plays moves written in coordinate notation, failing on one which isn't legal
+     */
+    private static void play(Chessboard board, String... moves){
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        for (String text : moves){
+            int count = board.getLegalMoves(legal, 0);
+            int move = Move.NONE;
+            for (int i = 0; i < count; i++){
+                if (Move.toString(legal[i]).equals(text)){
+                    move = legal[i];
+                }
+            }
+            assertNotEquals(Move.NONE, move, text + " in " + board.toFen());
+            board.play(move);
+        }
+    }
+}